@@ -0,0 +1,91 @@
+package com.example.aiNews.bench;
+
+import java.util.Random;
+
+/**
+ * Benchmark 用的假新聞網頁 (HTML)
+ * 以固定 seed 產生，字彙混合一般新聞用字與 AI 相關關鍵字 (密度接近實際抓到的科技新聞)，
+ * 內文穿插 <a href> 連結讓 WebTree 有子網頁可以展開；
+ * 另外帶 script / nav / footer 等版面區塊，HtmlExtractor 會跳過它們。
+ * targetChars 是內文 (可見文字) 的大約長度。
+ * 內容相同的網頁會被 CrawlFrontier 當成轉載跳過，要模擬不同網頁時用 pool 取不同 seed 的文章。
+ */
+public class ArticleFixtures {
+
+    private static final String[] EN_WORDS = {
+            "the", "company", "said", "on", "tuesday", "that", "its", "new", "product", "will",
+            "market", "users", "in", "and", "of", "to", "a", "for", "with", "growth",
+            "report", "analysis", "future", "launch", "update", "industry", "chip", "data", "model", "system",
+            "artificial intelligence", "generative ai", "chatgpt", "openai", "machine learning", "nvidia",
+            "technology", "digital", "smart", "cloud", "investors", "quarter", "revenue", "policy", "regulators"
+    };
+
+    private static final String[] ZH_WORDS = {
+            "公司", "表示", "今年", "市場", "用戶", "產品", "推出", "發表", "政府", "投資",
+            "的", "了", "在", "與", "將", "也", "我們", "記者", "報導", "最新",
+            "人工智慧", "生成式", "語言模型", "機器學習", "輝達", "黃仁勳", "大模型", "晶片",
+            "科技", "數位", "智慧", "演算法", "產業", "趨勢", "分析", "應用", "職場", "教育", "生活"
+    };
+
+    // count 篇不同 seed 的文章；lang = "mixed" 時中英文交錯
+    public static String[] pool(String lang, int targetChars, int count, long seed) {
+        String[] articles = new String[count];
+        for (int i = 0; i < count; i++) {
+            String articleLang = "mixed".equals(lang) ? (i % 2 == 0 ? "en" : "zh") : lang;
+            articles[i] = article(articleLang, targetChars, seed + i);
+        }
+        return articles;
+    }
+
+    // 同一個網址固定對應到 pool 裡的同一篇
+    public static String pick(String[] pool, String url) {
+        return pool[Math.floorMod(url.hashCode(), pool.length)];
+    }
+
+    public static String article(String lang, int targetChars, long seed) {
+        return article(lang, targetChars, seed, "http://bench.local/");
+    }
+
+    public static String article(String lang, int targetChars, long seed, String linkPrefix) {
+        Random random = new Random(seed);
+        boolean zh = "zh".equals(lang);
+        String[] words = zh ? ZH_WORDS : EN_WORDS;
+        String separator = zh ? "" : " ";
+
+        StringBuilder sb = new StringBuilder(targetChars * 2 + 1024);
+        sb.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>AI news</title>")
+                .append("<script>window.dataLayer = window.dataLayer || []; if (a < b) { track('view'); }</script>")
+                .append("<style>.nav { color: #333; }</style></head><body>")
+                .append("<nav><a href=\"").append(linkPrefix).append("home\">Home</a> ")
+                .append("<a href=\"").append(linkPrefix).append("tech\">Tech</a></nav>")
+                .append("<article><h1>").append(words[random.nextInt(words.length)]).append("</h1>");
+
+        int textChars = 0;
+        int sentence = 0;
+        sb.append("<p>");
+        while (textChars < targetChars) {
+            int length = 8 + random.nextInt(20);
+            for (int i = 0; i < length; i++) {
+                String word = words[random.nextInt(words.length)];
+                sb.append(word).append(separator);
+                textChars += word.length() + separator.length();
+            }
+            sb.append(zh ? "。" : ". ");
+            textChars += zh ? 1 : 2;
+
+            // 每幾句放一個連結，每十句換一個段落
+            if (++sentence % 5 == 0) {
+                sb.append("<a href=\"").append(linkPrefix).append("article-")
+                        .append(random.nextInt(1000)).append("\">")
+                        .append(words[random.nextInt(words.length)]).append("</a> ");
+            }
+            if (sentence % 10 == 0) {
+                sb.append("</p>\n<p>");
+            }
+        }
+        sb.append("</p></article>")
+                .append("<footer>&copy; 2024 bench.local &middot; <a href=\"").append(linkPrefix)
+                .append("privacy\">Privacy</a></footer></body></html>");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.aiNews.bench;
+
+import com.example.aiNews.model.SearchResult;
+import com.example.aiNews.service.GoogleQuery.SearchItem;
+import com.example.aiNews.service.LocalIndex;
+import com.example.aiNews.service.SearchEngine;
+import com.example.aiNews.util.HTMLFetcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SearchEngine.rankPages 端到端 (10 筆搜尋結果，各自建樹、評分、排序)
+ * 不連 Google：搜尋結果與網頁內容都是假資料，網路延遲以 fetchLatencyMs 模擬
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class RankPagesBenchmark {
+
+    @Param({"0", "50"})
+    public int fetchLatencyMs;
+
+    @Param({"100000"})
+    public int size;
+
+    private SearchEngine searchEngine;
+    private List<SearchItem> items;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] articles = ArticleFixtures.pool("mixed", size, 64, 1);
+        HTMLFetcher.setFetchOverride(url -> {
+            if (fetchLatencyMs > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(fetchLatencyMs));
+            }
+            return ArticleFixtures.pick(articles, url);
+        });
+
+        searchEngine = new SearchEngine(new LocalIndex());
+        items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(new SearchItem("http://bench.local/result-" + i, "AI news " + i, "snippet " + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        HTMLFetcher.setFetchOverride(null);
+    }
+
+    @Benchmark
+    public List<SearchResult> rankPages() {
+        return searchEngine.rankPages(items, "openai");
+    }
+}
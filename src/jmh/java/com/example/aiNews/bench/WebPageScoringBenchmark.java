@@ -0,0 +1,45 @@
+package com.example.aiNews.bench;
+
+import com.example.aiNews.model.WebPage;
+import com.example.aiNews.util.HTMLFetcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebPage 建構 (HTML 抽取 + 關鍵字計分) 的效能
+ * 網路抓取以假資料取代；內文超過 HtmlExtractor.DEFAULT_MAX_TEXT_CHARS 的部分不會被讀取
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WebPageScoringBenchmark {
+
+    @Param({"50000", "500000", "2000000"})
+    public int size;
+
+    @Param({"en", "zh"})
+    public String lang;
+
+    private String keyword;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String article = ArticleFixtures.article(lang, size, 42);
+        HTMLFetcher.setFetchOverride(url -> article);
+        keyword = "zh".equals(lang) ? "人工智慧 教育" : "openai education";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        HTMLFetcher.setFetchOverride(null);
+    }
+
+    @Benchmark
+    public WebPage score() {
+        return new WebPage("http://bench.local/root", "AI news title", "snippet about ai", keyword);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.aiNews.bench;
+
+import com.example.aiNews.model.WebPage;
+import com.example.aiNews.model.WebTree;
+import com.example.aiNews.util.HTMLFetcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * WebTree.buildTree + computeTotalScore
+ * 假的 fetcher 可以模擬網路延遲，用來比較逐一抓取、並行抓取與 best-first (抓取數與並行版的上限相同)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WebTreeBenchmark {
+
+    @Param({"0", "20"})
+    public int fetchLatencyMs;
+
+    @Param({"50000"})
+    public int size;
+
+    @Param({"en", "zh"})
+    public String lang;
+
+    @Param({"serial", "concurrent", "best-first"})
+    public String crawl;
+
+    private String[] articles;
+    private String keyword;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        articles = ArticleFixtures.pool(lang, size, 64, 7);
+        keyword = "zh".equals(lang) ? "人工智慧" : "openai";
+        HTMLFetcher.setFetchOverride(url -> {
+            if (fetchLatencyMs > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(fetchLatencyMs));
+            }
+            return ArticleFixtures.pick(articles, url);
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        HTMLFetcher.setFetchOverride(null);
+    }
+
+    @Benchmark
+    public double buildAndScore() {
+        WebPage rootPage = new WebPage("http://bench.local/root", "AI news", "snippet", keyword);
+        WebTree tree = new WebTree(rootPage, keyword);
+        if ("concurrent".equals(crawl)) {
+            tree.buildTreeConcurrent(3);
+        } else if ("best-first".equals(crawl)) {
+            tree.buildTreeBestFirst(3, 12);
+        } else {
+            tree.buildTree(3);
+        }
+        return tree.computeTotalScore();
+    }
+}
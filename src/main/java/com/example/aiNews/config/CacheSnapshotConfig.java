@@ -0,0 +1,80 @@
+package com.example.aiNews.config;
+
+import com.example.aiNews.util.CacheSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 快取快照 (cache.snapshot.*)：搜尋結果、相關關鍵字、翻譯快取存到本地檔案，重啟後接著用
+ * 啟動時在背景讀取 (不拖慢啟動)，之後定期寫入，正常關閉時再寫一次
+ */
+@Configuration
+public class CacheSnapshotConfig {
+
+    @Value("${cache.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.snapshot.file:data/cache-snapshot.bin}")
+    private String file;
+
+    @Value("${cache.snapshot.interval-minutes:5}")
+    private long intervalMinutes;
+
+    private Thread loader;
+    private ScheduledExecutorService writer;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+
+        loader = Thread.ofVirtual().name("cache-snapshot-load").start(this::load);
+        if (intervalMinutes <= 0) return;
+
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cache-snapshot-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(this::save, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) return;
+        if (writer != null) writer.shutdownNow();
+        save();
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try {
+            int restored = CacheSnapshot.load(Path.of(file));
+            System.out.println("✅ Cache snapshot: restored " + restored + " entries from " + file
+                    + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        } catch (IOException e) {
+            // 快照壞了就當作沒有，下一次寫入時覆蓋
+            System.err.println("❌ Cache snapshot not loaded: " + e.getMessage());
+        }
+    }
+
+    private void save() {
+        try {
+            // 還沒讀完就寫入的話，沒讀到的部分會被覆蓋掉
+            if (loader != null) loader.join();
+            int saved = CacheSnapshot.save(Path.of(file));
+            System.out.println("💾 Cache snapshot: saved " + saved + " entries to " + file);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Cache snapshot save error: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.aiNews.config;
+
+import com.example.aiNews.util.DomainPolicy;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 網域規則 (domain.policy.*)：規則檔存在就用規則檔，否則用 classpath 的 domain-policy.txt
+ * 定期檢查規則檔的修改時間，有變動就重新載入 (不用重啟)；格式錯誤時保留原本的規則
+ */
+@Configuration
+public class DomainPolicyConfig {
+
+    @Value("${domain.policy.file:config/domain-policy.txt}")
+    private String file;
+
+    @Value("${domain.policy.reload-seconds:10}")
+    private long reloadSeconds;
+
+    private ScheduledExecutorService watcher;
+
+    // 目前載入的規則檔修改時間 (-1 = 沒有規則檔，使用預設規則)
+    private long loadedModified = Long.MIN_VALUE;
+
+    @PostConstruct
+    public void init() {
+        reloadIfChanged();
+        if (reloadSeconds <= 0) return;
+
+        watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "domain-policy-watcher");
+            t.setDaemon(true);
+            return t;
+        });
+        watcher.scheduleWithFixedDelay(this::reloadIfChanged, reloadSeconds, reloadSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watcher != null) watcher.shutdownNow();
+    }
+
+    private void reloadIfChanged() {
+        Path path = Path.of(file);
+        long modified;
+        try {
+            modified = Files.exists(path) ? Files.getLastModifiedTime(path).toMillis() : -1;
+        } catch (IOException e) {
+            System.err.println("Domain policy check error: " + e.getMessage());
+            return;
+        }
+        if (modified == loadedModified) return;
+        loadedModified = modified; // 格式錯誤的檔案也記下來，改好之前不重複報錯
+
+        try {
+            DomainPolicy policy = (modified == -1) ? DomainPolicy.defaults() : DomainPolicy.load(path);
+            DomainPolicy.install(policy);
+            System.out.println("✅ Domain policy: " + policy.size() + " rules from " + policy.source());
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("❌ Domain policy not reloaded (keeping " + DomainPolicy.current().source() + "): "
+                    + e.getMessage());
+        }
+    }
+}
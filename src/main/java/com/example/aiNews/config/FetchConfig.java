@@ -0,0 +1,27 @@
+package com.example.aiNews.config;
+
+import com.example.aiNews.util.FetchClient;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 網頁抓取的並行上限與禮貌間隔 (fetch.*)
+ */
+@Configuration
+public class FetchConfig {
+
+    @Value("${fetch.max-in-flight:32}")
+    private int maxInFlight;
+
+    @Value("${fetch.max-per-host:2}")
+    private int maxPerHost;
+
+    @Value("${fetch.politeness-ms:200}")
+    private long politenessMs;
+
+    @PostConstruct
+    public void init() {
+        FetchClient.configure(maxInFlight, maxPerHost, politenessMs);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.aiNews.config;
+
+import com.example.aiNews.util.PipelineMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 搜尋流程指標的 registry 設定 (指標本身在 PipelineMetrics)
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Value("${metrics.fetch.max-hosts:200}")
+    private int maxFetchHosts;
+
+    // 爬到的網站五花八門，host tag 設上限
+    @Bean
+    public MeterFilter fetchHostLimit() {
+        return MeterFilter.maximumAllowableTags(PipelineMetrics.PREFIX + "fetch", "host", maxFetchHosts, MeterFilter.deny());
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.aiNews.config;
+
+import com.example.aiNews.util.OutboundTraffic;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * 對外呼叫的錄製 / 重播模式 (outbound.mode = live / record / replay)
+ */
+@Configuration
+public class OutboundConfig {
+
+    @Value("${outbound.mode:live}")
+    private String mode;
+
+    @Value("${outbound.archive:data/outbound-archive.jsonl}")
+    private String archive;
+
+    @Value("${outbound.replay-url:http://localhost:9099}")
+    private String replayUrl;
+
+    @PostConstruct
+    public void init() {
+        OutboundTraffic.Mode outboundMode = OutboundTraffic.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        OutboundTraffic.configure(outboundMode, Path.of(archive), replayUrl);
+        if (outboundMode != OutboundTraffic.Mode.LIVE) {
+            System.out.println("⚠️ Outbound mode: " + outboundMode + " (archive=" + archive
+                    + (outboundMode == OutboundTraffic.Mode.REPLAY ? ", replay=" + replayUrl : "") + ")");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.aiNews.config;
+
+import com.example.aiNews.util.HTMLFetcher;
+import com.example.aiNews.util.PageStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 啟動時開啟網頁磁碟快取並交給 HTMLFetcher 使用
+ * 之後定期整理：太久沒重新抓的網頁移出、超過容量上限淘汰最舊的、舊版本太多就重寫檔案
+ */
+@Configuration
+public class PageCacheConfig {
+
+    @Value("${page.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${page.cache.dir:data/page-cache}")
+    private String dir;
+
+    @Value("${page.cache.ttl-minutes:360}")
+    private long ttlMinutes;
+
+    // 超過這麼久沒重新抓 (或 304 確認) 的網頁移出快取；0 = 不限
+    @Value("${page.cache.max-age-minutes:1440}")
+    private long maxAgeMinutes;
+
+    // 快取檔案的有效資料上限 (MB)；0 = 不限
+    @Value("${page.cache.max-mb:512}")
+    private long maxMb;
+
+    @Value("${page.cache.maintenance-minutes:10}")
+    private long maintenanceMinutes;
+
+    private PageStore store;
+    private ScheduledExecutorService maintainer;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        try {
+            store = PageStore.open(Path.of(dir));
+            HTMLFetcher.configureCache(store, Duration.ofMinutes(ttlMinutes));
+            System.out.println("✅ Page cache: " + store.size() + " pages in " + dir
+                    + " (TTL " + ttlMinutes + " min)");
+            startMaintenance();
+        } catch (IOException e) {
+            // 快取打不開就退回每次下載，不影響搜尋
+            System.err.println("❌ Page cache disabled: " + e.getMessage());
+        }
+    }
+
+    private void startMaintenance() {
+        if (maintenanceMinutes <= 0) return;
+        maintainer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "page-cache-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        maintainer.scheduleWithFixedDelay(this::maintain, maintenanceMinutes, maintenanceMinutes, TimeUnit.MINUTES);
+    }
+
+    private void maintain() {
+        try {
+            int removed = store.maintain(TimeUnit.MINUTES.toMillis(maxAgeMinutes), maxMb * 1024 * 1024);
+            if (removed > 0) {
+                System.out.println("🧹 Page cache: removed " + removed + " pages, " + store.size() + " left ("
+                        + store.fileBytes() / 1024 + " KB on disk)");
+            }
+        } catch (IOException e) {
+            System.err.println("Page cache maintenance error: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (maintainer != null) maintainer.shutdownNow();
+        if (store == null) return;
+        HTMLFetcher.configureCache(null, Duration.ZERO);
+        try {
+            store.close();
+        } catch (IOException e) {
+            System.err.println("Page cache close error: " + e.getMessage());
+        }
+    }
+}
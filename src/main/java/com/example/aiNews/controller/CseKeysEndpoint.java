@@ -0,0 +1,27 @@
+package com.example.aiNews.controller;
+
+import com.example.aiNews.service.CseKeyPool;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * GET /actuator/csekeys：每組 Google CSE key 今天用掉的額度、錯誤率、冷卻中還要多久 (key 只顯示最後 4 碼)
+ */
+@Component
+@Endpoint(id = "csekeys")
+public class CseKeysEndpoint {
+
+    private final CseKeyPool keyPool;
+
+    public CseKeysEndpoint(CseKeyPool keyPool) {
+        this.keyPool = keyPool;
+    }
+
+    @ReadOperation
+    public Map<String, Object> keys() {
+        return keyPool.stats();
+    }
+}
@@ -1,62 +1,255 @@
 package com.example.aiNews.controller;
 
+import com.example.aiNews.model.ScoreExplanation;
 import com.example.aiNews.model.SearchResult;
-import com.example.aiNews.service.GoogleQuery;
 import com.example.aiNews.service.GoogleQuery.SearchItem;
-import com.example.aiNews.service.SearchEngine;
+import com.example.aiNews.service.Prefetcher;
+import com.example.aiNews.service.SearchEngine.Ranking;
+import com.example.aiNews.service.SearchPipeline;
+import com.example.aiNews.util.CacheSnapshot;
+import com.example.aiNews.util.Deadline;
 import com.example.aiNews.util.KeywordExtractor;
+import com.example.aiNews.util.ResultCache;
+import com.example.aiNews.util.Translator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.*;
 
 @RestController
 public class SearchController {
 
-    private final GoogleQuery googleQuery;
-    private final SearchEngine searchEngine;
+    private static final long SSE_TIMEOUT_MS = 120_000;
+    private static final String PARTIAL_HEADER = "X-Search-Partial";
+    private static final String TOTAL_HEADER = "X-Search-Total";
+    private static final int MAX_PAGE = 100; // CSE 最多 100 筆候選
 
-    private final Map<String, List<SearchResult>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+    private final SearchPipeline searchPipeline;
+    private final Prefetcher prefetcher;
+
+    // /search 沒指定 mode 時的預設模式 (live / local / auto)
+    @Value("${search.mode.default:live}")
+    private String defaultMode = "live";
+
+    // /search 每頁幾筆 (?page= 從 1 開始，由快取裡排好的候選分頁)
+    @Value("${search.page-size:10}")
+    private int pageSize = 10;
+
+    // auto 模式下本地索引至少要有幾筆結果才不走 live
+    @Value("${search.local.min-results:5}")
+    private int localMinResults = 5;
+
+    // /search 與 /search/stream 的端到端時間上限 (毫秒，0 = 不限時)，時間到就回傳目前評完的結果
+    @Value("${search.deadline-ms:3000}")
+    private long deadlineMs = 3000;
+
+    // /search/batch 一次最多幾個關鍵字，與整批的時間上限 (毫秒，0 = 不限時)
+    @Value("${search.batch.max-keywords:50}")
+    private int batchMaxKeywords = 50;
+
+    @Value("${search.batch.deadline-ms:30000}")
+    private long batchDeadlineMs = 30000;
+
+    // 相關關鍵字快取 (/related-keywords)，Google Suggest 失敗 (空清單) 不快取
+    private final ResultCache<String, Map<String, Object>> relatedCache;
+
+    // 快照格式：original_keyword、related_keywords、source_count
+    private static final CacheSnapshot.Codec<Map<String, Object>> RELATED_CODEC = new CacheSnapshot.Codec<>() {
         @Override
-        protected boolean removeEldestEntry(Map.Entry<String, List<SearchResult>> eldest) {
-            return size() > 100; 
+        @SuppressWarnings("unchecked")
+        public void write(DataOutputStream out, Map<String, Object> response) throws IOException {
+            CacheSnapshot.writeString(out, (String) response.get("original_keyword"));
+            List<String> keywords = (List<String>) response.get("related_keywords");
+            out.writeInt(keywords.size());
+            for (String keyword : keywords) {
+                CacheSnapshot.writeString(out, keyword);
+            }
+            out.writeInt((Integer) response.get("source_count"));
+        }
+
+        @Override
+        public Map<String, Object> read(DataInputStream in) throws IOException {
+            Map<String, Object> response = new HashMap<>();
+            response.put("original_keyword", CacheSnapshot.readString(in));
+            int count = in.readInt();
+            List<String> keywords = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                keywords.add(CacheSnapshot.readString(in));
+            }
+            response.put("related_keywords", keywords);
+            response.put("source_count", in.readInt());
+            return response;
         }
     };
 
-    public SearchController(GoogleQuery googleQuery, SearchEngine searchEngine) {
-        this.googleQuery = googleQuery;
-        this.searchEngine = searchEngine;
+    public SearchController(SearchPipeline searchPipeline, Prefetcher prefetcher,
+                            @Value("${search.cache.max-entries:100}") int maxEntries,
+                            @Value("${search.cache.ttl-minutes:30}") long ttlMinutes,
+                            @Value("${search.cache.stale-minutes:30}") long staleMinutes) {
+        this.searchPipeline = searchPipeline;
+        this.prefetcher = prefetcher;
+        this.relatedCache = new ResultCache<>("related-keywords", maxEntries,
+                Duration.ofMinutes(ttlMinutes), Duration.ofMinutes(staleMinutes),
+                response -> !((List<?>) response.get("related_keywords")).isEmpty());
+        CacheSnapshot.register(relatedCache, RELATED_CODEC);
     }
 
+    /**
+     * mode = live  : Google 搜尋 + 即時爬網頁評分 (原本的流程)
+     *        local : 只查本地索引 (BM25 + AI 關鍵字)，毫秒等級
+     *        auto  : 本地索引結果夠多就直接回傳，不夠才走 live 補齊
+     * live 超過 search.deadline-ms 時回傳已評完的部分，並加上 X-Search-Partial: true
+     * page = 第幾頁 (每頁 search.page-size 筆)；live 的各頁都從同一份排好的結果 (快取) 切出來，
+     * 翻頁不會再搜尋一次。X-Search-Total 為可以翻的總筆數
+     */
     @GetMapping("/search")
-    public List<SearchResult> search(@RequestParam String keyword) {
+    public ResponseEntity<List<SearchResult>> search(@RequestParam String keyword,
+                                                     @RequestParam(required = false) String mode,
+                                                     @RequestParam(defaultValue = "1") int page) {
+        if (page < 1 || page > MAX_PAGE) {
+            return ResponseEntity.badRequest().build();
+        }
+        Deadline deadline = Deadline.after(Duration.ofMillis(deadlineMs));
+        String searchMode = (mode == null || mode.isBlank()) ? defaultMode : mode;
 
-        if (cache.containsKey(keyword)) {
-            return cache.get(keyword);
+        if ("local".equals(searchMode) || "auto".equals(searchMode)) {
+            List<SearchResult> local = searchPipeline.searchLocal(keyword, page * pageSize);
+            if ("local".equals(searchMode) || local.size() >= localMinResults) {
+                return ResponseEntity.ok()
+                        .header(TOTAL_HEADER, String.valueOf(local.size()))
+                        .body(pageOf(local, page));
+            }
         }
 
-        List<SearchItem> items = googleQuery.search(keyword);
-        List<SearchResult> results = searchEngine.rankPages(items, keyword);
+        // 翻頁 (page > 1) 不計入熱門查詢
+        if (page == 1) {
+            prefetcher.recordQuery(keyword);
+        }
+        Ranking ranking = searchPipeline.search(keyword, deadline);
+        return ResponseEntity.ok()
+                .header(PARTIAL_HEADER, String.valueOf(ranking.partial))
+                .header(TOTAL_HEADER, String.valueOf(ranking.results.size()))
+                .body(pageOf(ranking.results, page));
+    }
+
+    private List<SearchResult> pageOf(List<SearchResult> results, int page) {
+        int from = (page - 1) * pageSize;
+        if (from >= results.size()) return List.of();
+        return results.subList(from, Math.min(results.size(), from + pageSize));
+    }
 
-        if (!results.isEmpty()) {
-            cache.put(keyword, results);
+    /**
+     * 串流版 /search (Server-Sent Events)
+     * 每棵樹評分完就送出一個 "result" 事件，全部完成後送出 "done" 事件 (內容為排序後的完整清單)
+     * 超過 search.deadline-ms 時，"done" 之前先送一個 "partial" 事件
+     */
+    @GetMapping(value = "/search/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter searchStream(@RequestParam String keyword) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        Deadline deadline = Deadline.after(Duration.ofMillis(deadlineMs));
+        prefetcher.recordQuery(keyword);
+
+        Thread worker = Thread.ofVirtual().name("search-stream").unstarted(() -> {
+            try {
+                Ranking ranking = searchPipeline.searchStreaming(keyword,
+                        result -> sendEvent(emitter, "result", result), deadline);
+                if (ranking.partial) {
+                    sendEvent(emitter, "partial", true);
+                }
+                sendEvent(emitter, "done", ranking.results);
+                emitter.complete();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        });
+
+        // client 離開或逾時就中斷還在進行的評分
+        emitter.onTimeout(worker::interrupt);
+        emitter.onError(e -> worker.interrupt());
+        worker.start();
+        return emitter;
+    }
+
+    /**
+     * 批次搜尋 (給定期更新多個主題的儀表板)：body 為關鍵字陣列，例如 ["openai", "輝達"]
+     * 回傳 { 關鍵字: 排序後的結果 }；多個關鍵字搜到同一個網址時只抓取、計分一次
+     * 整批的時間上限為 search.batch.deadline-ms，有關鍵字沒評完時加上 X-Search-Partial: true
+     * 不計入熱門查詢 (不是使用者的搜尋)
+     */
+    @PostMapping("/search/batch")
+    public ResponseEntity<Map<String, List<SearchResult>>> searchBatch(@RequestBody List<String> keywords) {
+        if (keywords == null || keywords.isEmpty() || keywords.size() > batchMaxKeywords) {
+            return ResponseEntity.badRequest().build();
+        }
+        Deadline deadline = (batchDeadlineMs > 0) ? Deadline.after(Duration.ofMillis(batchDeadlineMs)) : Deadline.none();
+        Map<String, Ranking> rankings = searchPipeline.searchBatch(keywords, deadline);
+
+        // 依輸入的關鍵字回傳 (大小寫、空白不同但正規化後相同的共用一份結果)
+        Map<String, List<SearchResult>> response = new LinkedHashMap<>();
+        boolean partial = false;
+        for (String keyword : keywords) {
+            Ranking ranking = rankings.get(SearchPipeline.normalize(keyword));
+            if (ranking == null) continue; // 空白關鍵字
+            response.put(keyword, ranking.results);
+            partial |= ranking.partial;
         }
+        return ResponseEntity.ok()
+                .header(PARTIAL_HEADER, String.valueOf(partial))
+                .body(response);
+    }
+
+    /**
+     * 某個結果的評分樹 (JSON)：每個節點的網頁分數、節點總分與關鍵字明細
+     * url 要是這個關鍵字 live 搜尋的結果之一，否則回傳 404
+     */
+    @GetMapping("/search/explain")
+    public ResponseEntity<ScoreExplanation> explain(@RequestParam String keyword, @RequestParam String url) {
+        Deadline deadline = Deadline.after(Duration.ofMillis(deadlineMs));
+        ScoreExplanation explanation = searchPipeline.explain(keyword, url, deadline);
+        return (explanation != null) ? ResponseEntity.ok(explanation) : ResponseEntity.notFound().build();
+    }
 
-        return results;
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            synchronized (emitter) {
+                emitter.send(SseEmitter.event().name(name).data(data));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
     
     /**
      * Stage 4: Semantics Analysis
      * 從搜尋結果提取相關關鍵字
+     * 前幾個相關關鍵字排進背景暖機，使用者點下去時搜尋結果已經在快取裡
      */
     @GetMapping("/related-keywords")
+    @SuppressWarnings("unchecked")
     public Map<String, Object> getRelatedKeywords(@RequestParam String keyword) {
+        Map<String, Object> response = relatedCache.get(SearchPipeline.normalize(keyword), this::findRelatedKeywords);
+        prefetcher.prefetchSuggestions((List<String>) response.get("related_keywords"));
+        return response;
+    }
+
+    private Map<String, Object> findRelatedKeywords(String keyword) {
         System.out.println("\n🔍 === Stage 4: 提取相關關鍵字 ===");
         
-        // 1. 先搜尋
-        List<SearchItem> items = googleQuery.search(keyword);
+        // 1. 先搜尋 (與 /search 同時送出時共用同一次 Google 查詢)
+        List<SearchItem> items = searchPipeline.searchItems(keyword);
         
         // 2. 收集前 3 個結果的內容
         List<String> contents = new ArrayList<>();
@@ -92,9 +285,8 @@ public class SearchController {
     public Map<String, Object> compareWithLLM(@RequestParam String keyword) {
         System.out.println("\n🤖 === Stage 6: 準備與 LLM 比較 ===");
         
-        // 1. 執行搜尋
-        List<SearchItem> items = googleQuery.search(keyword);
-        List<SearchResult> results = searchEngine.rankPages(items, keyword);
+        // 1. 執行搜尋 (與 /search 共用快取)
+        List<SearchResult> results = searchPipeline.search(keyword);
         
         // 2. 建立 Prompt
         StringBuilder prompt = new StringBuilder();
@@ -136,6 +328,12 @@ public class SearchController {
         
         return response;
     }
+
+    @GetMapping("/cache-stats")
+    public List<Map<String, Object>> cacheStats() {
+        return List.of(searchPipeline.cacheStats(), relatedCache.stats(), Translator.cacheStats(), prefetcher.stats());
+    }
+
     @GetMapping("/health")
     @ResponseBody
     public String health() {
@@ -0,0 +1,24 @@
+package com.example.aiNews.devtools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 解析 --name=value 形式的命令列參數
+ */
+class DevArgs {
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) continue;
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                opts.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else {
+                opts.put(arg.substring(2), "true");
+            }
+        }
+        return opts;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.aiNews.devtools;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 本地壓測工具：以固定速率 (open-loop，不等前一個回應) 打 /search，最後印出延遲分位數與吞吐量
+ *
+ * 執行：java -cp app.jar com.example.aiNews.devtools.LoadGenerator \
+ *          --base=http://localhost:8081 --rps=5 --duration=60 --keywords=教育,醫療,fashion --path=/search
+ * 搭配 outbound.mode=replay + ReplayServer 可以在不連外網的情況下重複壓測
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = DevArgs.parse(args);
+        String base = opts.getOrDefault("base", "http://localhost:8081");
+        String path = opts.getOrDefault("path", "/search");
+        double rps = Double.parseDouble(opts.getOrDefault("rps", "5"));
+        int durationSec = Integer.parseInt(opts.getOrDefault("duration", "30"));
+        int timeoutSec = Integer.parseInt(opts.getOrDefault("timeout", "60"));
+        String[] keywords = opts.getOrDefault("keywords", "教育,醫療,fashion,sports,美食").split(",");
+        String extraQuery = opts.getOrDefault("query", "");
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSec);
+        long next = start;
+        int sent = 0;
+
+        System.out.println("▶ " + rps + " rps for " + durationSec + "s → " + base + path);
+
+        while (next < end) {
+            LockSupport.parkNanos(next - System.nanoTime());
+
+            String keyword = keywords[sent % keywords.length].trim();
+            String url = base + path + "?keyword=" + URLEncoder.encode(keyword, StandardCharsets.UTF_8)
+                    + (extraQuery.isEmpty() ? "" : "&" + extraQuery);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofSeconds(timeoutSec))
+                    .GET()
+                    .build();
+
+            long sentAt = System.nanoTime();
+            inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        if (error != null || response.statusCode() >= 400) {
+                            errors.incrementAndGet();
+                        } else {
+                            latencies.add(System.nanoTime() - sentAt);
+                        }
+                        return null;
+                    }));
+
+            sent++;
+            next += intervalNanos;
+        }
+
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+        double elapsedSec = (System.nanoTime() - start) / 1e9;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+
+        System.out.println("\n=== Load test result ===");
+        System.out.println("requests   : " + sent + " (ok " + sorted.size() + ", errors " + errors.get() + ")");
+        System.out.printf("throughput : %.2f req/s%n", sorted.size() / elapsedSec);
+        if (!sorted.isEmpty()) {
+            System.out.printf("latency    : p50 %.1f ms · p90 %.1f ms · p99 %.1f ms · max %.1f ms%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.90),
+                    percentile(sorted, 0.99), sorted.get(sorted.size() - 1) / 1e6);
+        }
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))) / 1e6;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.aiNews.devtools;
+
+import com.example.aiNews.util.OutboundTraffic;
+import com.example.aiNews.util.OutboundTraffic.Recording;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 離線測試用的替身伺服器：把 outbound.mode=record 錄下來的回應重播給 app
+ * app 設定 outbound.mode=replay 後，所有對外請求會變成 GET /replay?url=原始網址
+ *
+ * 執行：java -cp app.jar com.example.aiNews.devtools.ReplayServer \
+ *          --archive=data/outbound-archive.jsonl --port=9099 --latency-ms=200 --jitter-ms=100 --error-rate=0.05
+ */
+public class ReplayServer {
+
+    private final Map<String, Recording> recordings;
+    private final int latencyMs;
+    private final int jitterMs;
+    private final double errorRate;
+
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    public ReplayServer(Map<String, Recording> recordings, int latencyMs, int jitterMs, double errorRate) {
+        this.recordings = recordings;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+    }
+
+    public HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/replay", this::handleReplay);
+        server.createContext("/stats", this::handleStats);
+        server.start();
+        return server;
+    }
+
+    private void handleReplay(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String url = queryParam(exchange.getRequestURI().getRawQuery(), "url");
+            Recording recording = (url != null) ? recordings.get(OutboundTraffic.archiveKey(url)) : null;
+
+            // 模擬網路延遲
+            int delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextInt(jitterMs + 1) : 0);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+
+            // 錯誤注入
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                send(exchange, 503, "text/plain", "injected error");
+                return;
+            }
+
+            if (recording == null) {
+                missing.incrementAndGet();
+                System.out.println("⚠️ Not in archive: " + url);
+                send(exchange, 404, "text/plain", "not recorded");
+                return;
+            }
+
+            served.incrementAndGet();
+            send(exchange, recording.status, recording.contentType, recording.body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String json = "{\"recordings\":" + recordings.size()
+                    + ",\"served\":" + served.get()
+                    + ",\"missing\":" + missing.get()
+                    + ",\"injected_errors\":" + injectedErrors.get() + "}";
+            send(exchange, 200, "application/json", json);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = (body == null ? "" : body).getBytes(StandardCharsets.UTF_8);
+        if (contentType != null && !contentType.isEmpty()) {
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        }
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static String queryParam(String rawQuery, String name) {
+        if (rawQuery == null) return null;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opts = DevArgs.parse(args);
+        Path archive = Path.of(opts.getOrDefault("archive", "data/outbound-archive.jsonl"));
+        int port = Integer.parseInt(opts.getOrDefault("port", "9099"));
+
+        Map<String, Recording> recordings = OutboundTraffic.load(archive);
+        ReplayServer server = new ReplayServer(recordings,
+                Integer.parseInt(opts.getOrDefault("latency-ms", "0")),
+                Integer.parseInt(opts.getOrDefault("jitter-ms", "0")),
+                Double.parseDouble(opts.getOrDefault("error-rate", "0")));
+        server.start(port);
+
+        System.out.println("✅ ReplayServer: " + recordings.size() + " recordings from " + archive
+                + " on http://localhost:" + port);
+    }
+}
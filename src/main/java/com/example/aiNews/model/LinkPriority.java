@@ -0,0 +1,127 @@
+package com.example.aiNews.model;
+
+import com.example.aiNews.util.DomainPolicy;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * best-first 爬取時連結的優先分數 (抓取之前就能算，只看網址與錨點文字)
+ * - 錨點文字：用網頁計分同一套字典與權重 (WebPage.scoreText)；像標題的長錨點文字加分，
+ *   空的或「登入 / 訂閱 / 首頁」這類功能連結扣分
+ * - 網址路徑：路徑裡的詞同樣計分 (權重減半)；像文章的 (日期、數字 ID、多字 slug) 加分，
+ *   首頁與 tag / category / login / search 這類列表或功能頁扣分
+ * - 同一個網站的連結加分 (通常是相關報導)
+ * - 網域規則的加減分 (DomainPolicy) 縮小後加上去
+ */
+public final class LinkPriority {
+
+    private static final double HEADLINE_BONUS = 10;
+    private static final double EMPTY_ANCHOR_PENALTY = 5;
+    private static final double NAVIGATION_PENALTY = 40;
+    private static final double ARTICLE_PATH_BONUS = 15;
+    private static final double SAME_SITE_BONUS = 10;
+    private static final double DOMAIN_WEIGHT_SCALE = 1 / 20.0; // 新聞網站 +200 → +10
+
+    // 錨點文字很短且包含這些字的，多半是網站功能連結
+    private static final int NAVIGATION_ANCHOR_MAX_CHARS = 15;
+    private static final String[] NAVIGATION_ANCHORS = {
+            "login", "log in", "sign in", "sign up", "register", "subscribe", "privacy", "terms", "cookie",
+            "home", "more", "next", "previous", "contact", "about", "advertise", "share",
+            "登入", "註冊", "訂閱", "隱私", "條款", "首頁", "更多", "下一頁", "上一頁", "關於", "聯絡", "廣告", "分享"
+    };
+
+    // 路徑裡出現這些段落的是列表、帳號或網站功能頁
+    private static final Set<String> NAVIGATION_SEGMENTS = Set.of(
+            "login", "signin", "signup", "register", "account", "subscribe", "subscription", "privacy", "terms",
+            "cookie", "cookies", "policy", "about", "contact", "advertise", "ads", "ad", "share", "search",
+            "tag", "tags", "category", "categories", "author", "authors", "feed", "rss", "cart", "shop",
+            "help", "faq", "careers", "jobs");
+
+    private static final Pattern YEAR = Pattern.compile("(19|20)\\d{2}");
+    private static final Pattern NUMERIC_ID = Pattern.compile("\\d{5,}");
+    private static final Pattern CJK = Pattern.compile("[\u4e00-\u9fa5]");
+
+    private LinkPriority() {
+    }
+
+    public static double score(String pageUrl, String url, String anchor, String userKeyword) {
+        URI uri = parse(url);
+        if (uri == null || uri.getHost() == null) return -NAVIGATION_PENALTY;
+
+        return anchorScore(anchor, userKeyword)
+                + pathScore(uri.getPath(), userKeyword)
+                + (sameSite(pageUrl, uri.getHost()) ? SAME_SITE_BONUS : 0)
+                + DomainPolicy.current().match(url).weight * DOMAIN_WEIGHT_SCALE;
+    }
+
+    private static double anchorScore(String anchor, String userKeyword) {
+        String text = (anchor == null) ? "" : anchor.trim();
+        if (text.isEmpty()) return -EMPTY_ANCHOR_PENALTY;
+
+        double score = WebPage.scoreText(text, userKeyword);
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (text.length() <= NAVIGATION_ANCHOR_MAX_CHARS) {
+            for (String word : NAVIGATION_ANCHORS) {
+                if (lower.contains(word)) return score - NAVIGATION_PENALTY;
+            }
+        }
+        // 中文標題比較短
+        int headlineChars = CJK.matcher(text).find() ? 8 : 20;
+        if (text.length() >= headlineChars) score += HEADLINE_BONUS;
+        return score;
+    }
+
+    private static double pathScore(String path, String userKeyword) {
+        if (path == null || path.isEmpty() || "/".equals(path)) return -NAVIGATION_PENALTY; // 首頁
+
+        StringBuilder words = new StringBuilder();
+        boolean articleLike = false;
+        for (String segment : path.toLowerCase(Locale.ROOT).split("/")) {
+            if (segment.isEmpty()) continue;
+            String name = segment.replaceFirst("\\.(html?|php|aspx?)$", "");
+            if (NAVIGATION_SEGMENTS.contains(name)) return -NAVIGATION_PENALTY;
+
+            String[] parts = name.split("[-_.+]");
+            if (YEAR.matcher(name).matches() || NUMERIC_ID.matcher(name).find() || parts.length >= 3) {
+                articleLike = true;
+            }
+            for (String part : parts) {
+                words.append(part).append(' ');
+            }
+        }
+        return WebPage.scoreText(words.toString(), userKeyword) * 0.5 + (articleLike ? ARTICLE_PATH_BONUS : 0);
+    }
+
+    // 同一個網站：去掉 www. 之後主機相同，或同屬一個網域 (news.ltn.com.tw 與 ec.ltn.com.tw)
+    private static boolean sameSite(String pageUrl, String host) {
+        URI page = parse(pageUrl);
+        if (page == null || page.getHost() == null) return false;
+        return siteOf(page.getHost()).equals(siteOf(host));
+    }
+
+    private static String siteOf(String host) {
+        String[] labels = host.toLowerCase(Locale.ROOT).split("\\.");
+        int n = labels.length;
+        if (n <= 2) return String.join(".", labels);
+        // 國碼網域的第二層 (com.tw、co.uk) 要多取一層
+        boolean countrySecondLevel = labels[n - 1].length() == 2 && labels[n - 2].length() <= 3;
+        int keep = countrySecondLevel ? 3 : 2;
+        StringBuilder site = new StringBuilder();
+        for (int i = Math.max(0, n - keep); i < n; i++) {
+            if (site.length() > 0) site.append('.');
+            site.append(labels[i]);
+        }
+        return site.toString();
+    }
+
+    private static URI parse(String url) {
+        try {
+            return URI.create(url);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
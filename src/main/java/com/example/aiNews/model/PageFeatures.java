@@ -0,0 +1,33 @@
+package com.example.aiNews.model;
+
+import java.util.List;
+
+/**
+ * 網頁計分後留下的精簡特徵 (取代整份內文)
+ * 計分完內文就可以釋放；樹、排名快取與 /search/explain 只需要這些，每頁約幾百 bytes
+ */
+public class PageFeatures {
+
+    // 依比對器 ID 排列：強 AI 詞 → 弱 AI 詞 → 內容詞 (固定的字典 ID) → 使用者關鍵字 (userTerms 的順序)
+    public final int[] termCounts;
+    public final String[] userTerms;
+    public final List<String> links;   // 網頁上的連結 (絕對網址)，WebTree 用來找子網頁
+    public final List<String> anchors; // 各連結的錨點文字 (與 links 同順序，可能比較短)，排爬取順序用
+    public final long contentHash;     // 內文的 SimHash 指紋，0 = 內文太短
+    public final int contentLength;
+
+    public PageFeatures(int[] termCounts, String[] userTerms, List<String> links, List<String> anchors,
+                        long contentHash, int contentLength) {
+        this.termCounts = termCounts;
+        this.userTerms = userTerms;
+        this.links = links;
+        this.anchors = anchors;
+        this.contentHash = contentHash;
+        this.contentLength = contentLength;
+    }
+
+    // 第 i 個連結的錨點文字，沒有時為 ""
+    public String anchorOf(int i) {
+        return (i < anchors.size()) ? anchors.get(i) : "";
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.aiNews.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 一個網頁的計分明細 (WebPage 計分時順便記下，之後不用再掃描內文)
+ * 只存出現次數 > 0 的關鍵字，依類別排成一列：使用者關鍵字 → 強 AI 詞 → 弱 AI 詞 → 內容詞
+ */
+public class ScoreBreakdown {
+
+    public final double strongAiScore;
+    public final double weakAiScore;     // 已套用上限
+    public final double contentScore;
+    public final double userKeywordScore;
+
+    private final String[] keywords;
+    private final int[] counts;
+    private final int userEnd;
+    private final int strongEnd;
+    private final int weakEnd;
+
+    ScoreBreakdown(double strongAiScore, double weakAiScore, double contentScore, double userKeywordScore,
+                   String[] keywords, int[] counts, int userEnd, int strongEnd, int weakEnd) {
+        this.strongAiScore = strongAiScore;
+        this.weakAiScore = weakAiScore;
+        this.contentScore = contentScore;
+        this.userKeywordScore = userKeywordScore;
+        this.keywords = keywords;
+        this.counts = counts;
+        this.userEnd = userEnd;
+        this.strongEnd = strongEnd;
+        this.weakEnd = weakEnd;
+    }
+
+    // 各類別的關鍵字次數 (給 /search/explain 輸出 JSON)
+    public Map<String, Map<String, Integer>> getKeywords() {
+        Map<String, Map<String, Integer>> categories = new LinkedHashMap<>();
+        categories.put("user", counts(0, userEnd));
+        categories.put("strong_ai", counts(userEnd, strongEnd));
+        categories.put("weak_ai", counts(strongEnd, weakEnd));
+        categories.put("content", counts(weakEnd, keywords.length));
+        return categories;
+    }
+
+    private Map<String, Integer> counts(int from, int to) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i = from; i < to; i++) {
+            result.put(keywords[i], counts[i]);
+        }
+        return result;
+    }
+
+    // 使用者關鍵字與強 AI 詞的次數，例如 "openai:3 chatgpt:2"
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < strongEnd; i++) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(keywords[i]).append(':').append(counts[i]);
+        }
+        return sb.toString();
+    }
+}
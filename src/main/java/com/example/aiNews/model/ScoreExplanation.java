@@ -0,0 +1,30 @@
+package com.example.aiNews.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 評分樹的精簡版 (不含內文)，/search/explain 回傳的 JSON
+ * nodeScore = pageScore + 子節點 nodeScore 總和 × 0.6 (根節點另外加上 domainWeight)
+ */
+public class ScoreExplanation {
+
+    public final String url;
+    public final String title;
+    public final double pageScore;
+    public final double nodeScore;
+    public final ScoreBreakdown breakdown;
+    public final List<ScoreExplanation> children = new ArrayList<>();
+    public int domainWeight; // 只有根節點會設定 (DomainPolicy 的加減分)
+
+    public ScoreExplanation(WebNode node) {
+        this.url = node.webPage.url;
+        this.title = node.webPage.title;
+        this.pageScore = node.webPage.score;
+        this.nodeScore = node.nodeScore;
+        this.breakdown = node.webPage.breakdown();
+        for (WebNode child : node.children) {
+            children.add(new ScoreExplanation(child));
+        }
+    }
+}
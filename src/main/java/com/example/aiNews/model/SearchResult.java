@@ -1,5 +1,7 @@
 package com.example.aiNews.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class SearchResult {
 
     public String url;
@@ -8,6 +10,10 @@ public class SearchResult {
     public int userKeywordCount;
     public int score;
 
+    // 評分樹的明細 (live 搜尋才有；快照還原的在 /search/explain 用到時重算)，不放進 /search 的回應
+    @JsonIgnore
+    public ScoreExplanation explanation;
+
     public SearchResult(String url, String title, int aiKeywordCount, int userKeywordCount, int score) {
         this.url = url;
         this.title = title;
@@ -1,14 +1,21 @@
 package com.example.aiNews.model;
 
+import com.example.aiNews.util.Deadline;
 import com.example.aiNews.util.HTMLFetcher;
+import com.example.aiNews.util.HtmlExtractor;
+import com.example.aiNews.util.KeywordMatcher;
+import com.example.aiNews.util.PipelineMetrics;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class WebPage {
 
     public String url;
     public String title;
-    public String content;
+    public PageFeatures features; // 計分後只留下特徵 (關鍵字次數、連結、內容指紋)，不保留內文
     public int aiKeywordCount;
     public int userKeywordCount;
     public double score;
@@ -37,6 +44,16 @@ public class WebPage {
             "話題", "熱議", "分析", "觀點", "專題", "資深記者", "採訪"
     );
 
+    // 三份字典依序排在比對器最前面，後面接使用者關鍵字
+    private static final int STRONG_END = STRONG_AI_KEYWORDS.size();
+    private static final int WEAK_END = STRONG_END + WEAK_AI_KEYWORDS.size();
+    private static final int DICTIONARY_END = WEAK_END + CONTENT_KEYWORDS.size();
+    private static final String[] DICTIONARY = dictionary();
+
+    // 每組使用者關鍵字編譯一次，所有網頁、執行緒共用
+    private static final int MAX_CACHED_MATCHERS = 256;
+    private static final Map<String, KeywordMatcher> MATCHERS = new ConcurrentHashMap<>();
+
     // ==========================================
     // ★ 解決錯誤的關鍵在這裡！請補上這段代碼
     // ==========================================
@@ -48,79 +65,199 @@ public class WebPage {
         this(url, "", "", userKeyword);
     }
 
+    // 同上，抓取不超過 deadline (時間到就當作抓不到內容)
+    public WebPage(String url, String userKeyword, Deadline deadline) {
+        this(url, "", "", userKeyword, deadline);
+    }
+
     // 2. 完整建構子 (給 SearchEngine 使用)
     // 這是我們用來接收 Google 搜尋結果 (含標題、摘要) 的
     public WebPage(String url, String title, String snippet, String userKeyword) {
+        this(url, title, snippet, userKeyword, Deadline.none());
+    }
+
+    public WebPage(String url, String title, String snippet, String userKeyword, Deadline deadline) {
+        this(url, title, snippet, userKeyword, HTMLFetcher.fetchPage(url, deadline));
+    }
+
+    // 3. 已經抓好的網頁 (CrawlFrontier 先抓取、去重，確定要收錄才計分)
+    // 計分完只留下 PageFeatures，page.text 不再被這個物件參考
+    public WebPage(String url, String title, String snippet, String userKeyword, HtmlExtractor.Page page) {
         this.url = url;
         this.title = title;
-        this.content = HTMLFetcher.fetch(url);
-        
-        if (this.content == null) {
-            this.content = ""; 
-        }
         
         // 計分內容 = 標題 + 摘要 + 內文
-        String allText = (title + " " + snippet + " " + content).toLowerCase();
+        long scoreStart = System.nanoTime();
         String safeUserKeyword = (userKeyword == null) ? "" : userKeyword.toLowerCase();
 
         // --- 分數計算邏輯 ---
-        double strongAiScore = countKeywords(allText, STRONG_AI_KEYWORDS) * 5.0; 
-        double rawWeakAiScore = countKeywords(allText, WEAK_AI_KEYWORDS) * 1.0;
-        double weakAiScore = Math.min(rawWeakAiScore, 30.0); 
-        double contentScore  = countKeywords(allText, CONTENT_KEYWORDS) * 12.0; 
-        
-        double userKeyScore = 0;
-        int totalUserCount = 0;
-        String[] keywords = safeUserKeyword.split("\\s+");
-        
-        for (String kw : keywords) {
-            if (kw.length() > 0) {
-                int count = countKeyword(allText, kw);
-                userKeyScore += count * 30.0;
-                totalUserCount += count;
-            }
+        // 一次掃描就取得所有字典關鍵字 + 使用者關鍵字的次數 (逐字轉小寫，不另外組出整份小寫字串)
+        KeywordMatcher matcher = matcherFor(safeUserKeyword);
+        int[] counts = matcher.countLowerCase(title, snippet, page.text);
+
+        String[] userTerms = new String[matcher.size() - DICTIONARY_END];
+        for (int id = DICTIONARY_END; id < matcher.size(); id++) {
+            userTerms[id - DICTIONARY_END] = matcher.pattern(id);
+        }
+        this.features = new PageFeatures(counts, userTerms, page.links, page.anchors,
+                page.fingerprint(), page.text.length());
+        applyScore(counts);
+        PipelineMetrics.pageScore(System.nanoTime() - scoreStart);
+    }
+
+    private WebPage(String url, String title, PageFeatures features) {
+        this.url = url;
+        this.title = title;
+        this.features = features;
+        applyScore(features.termCounts);
+    }
+
+    private void applyScore(int[] counts) {
+        this.score = weightedScore(counts);
+        this.aiKeywordCount = sum(counts, 0, WEAK_END);
+        this.userKeywordCount = sum(counts, DICTIONARY_END, counts.length);
+    }
+
+    private static double weightedScore(int[] counts) {
+        double strongAiScore = sum(counts, 0, STRONG_END) * 5.0; 
+        double weakAiScore = Math.min(sum(counts, STRONG_END, WEAK_END) * 1.0, 30.0); 
+        double contentScore  = sum(counts, WEAK_END, DICTIONARY_END) * 12.0; 
+        double userKeyScore = sum(counts, DICTIONARY_END, counts.length) * 30.0;
+        return strongAiScore + weakAiScore + contentScore + userKeyScore;
+    }
+
+    /**
+     * 一小段文字 (例如連結的錨點文字) 用同一套字典與權重計分，不建 PageFeatures
+     * WebTree 用它在抓取之前排連結的優先順序
+     */
+    public static double scoreText(String text, String userKeyword) {
+        if (isEmpty(text)) return 0;
+        String safeUserKeyword = (userKeyword == null) ? "" : userKeyword.toLowerCase();
+        return weightedScore(matcherFor(safeUserKeyword).countLowerCase(text));
+    }
+
+    /**
+     * 4. 批次搜尋：同一個網頁換一組使用者關鍵字重新計分，不用再掃描內文
+     * 這個網頁要用「所有關鍵字的詞」一起計分過 (只計內文，title、snippet 為空)；
+     * 字典的次數與關鍵字無關直接沿用，使用者關鍵字只取 userKeyword 這幾個詞的次數。
+     * Google 的標題、摘要依查詢而不同，所以另外掃描 (很短) 再加上去。
+     */
+    public WebPage rescore(String title, String snippet, String userKeyword) {
+        String safeUserKeyword = (userKeyword == null) ? "" : userKeyword.toLowerCase();
+        List<String> terms = splitTerms(safeUserKeyword);
+
+        int[] extra = null;
+        if (!isEmpty(title) || !isEmpty(snippet)) {
+            extra = matcherFor(String.join(" ", features.userTerms)).countLowerCase(title, snippet);
         }
 
-        this.score = strongAiScore + weakAiScore + contentScore + userKeyScore;
-        this.aiKeywordCount = (int)(strongAiScore / 5.0 + rawWeakAiScore); 
-        this.userKeywordCount = totalUserCount;
+        List<String> scoredTerms = Arrays.asList(features.userTerms);
+        int[] counts = new int[DICTIONARY_END + terms.size()];
+        for (int id = 0; id < DICTIONARY_END; id++) {
+            counts[id] = features.termCounts[id] + (extra != null ? extra[id] : 0);
+        }
+        for (int i = 0; i < terms.size(); i++) {
+            int id = DICTIONARY_END + scoredTerms.indexOf(terms.get(i));
+            if (id < DICTIONARY_END) continue; // 計分時沒有這個詞
+            counts[DICTIONARY_END + i] = features.termCounts[id] + (extra != null ? extra[id] : 0);
+        }
+
+        PageFeatures rescored = new PageFeatures(counts, terms.toArray(new String[0]), features.links,
+                features.anchors, features.contentHash, features.contentLength);
+        return new WebPage(url, title, rescored);
+    }
+
+    // 網頁上的連結 (絕對網址)
+    public List<String> links() {
+        return features.links;
+    }
+
+    // 使用者關鍵字與強 AI 詞的次數 (由計分時的次數組出，不再掃描內文)
+    public String getKeywordStats() {
+        return breakdown().summary();
     }
 
-    // ... (KeywordStats 和 countKeyword 方法保持不變) ...
-    public String getKeywordStats(String userKeyword) {
-        StringBuilder sb = new StringBuilder();
-        String text = (title + " " + content).toLowerCase(); 
-        if (userKeyword != null && !userKeyword.isEmpty()) {
-            String[] keywords = userKeyword.toLowerCase().split("\\s+");
-            for (String kw : keywords) {
-                int count = countKeyword(text, kw);
-                if (count > 0) sb.append(kw).append(":").append(count).append(" ");
+    /**
+     * 計分明細 (/search/explain 使用)
+     * 只列出次數 > 0 的關鍵字，依 使用者關鍵字 → 強 → 弱 → 內容詞 排列
+     */
+    public ScoreBreakdown breakdown() {
+        int[] counts = features.termCounts;
+        int hits = 0;
+        for (int count : counts) {
+            if (count > 0) hits++;
+        }
+        String[] keywords = new String[hits];
+        int[] hitCounts = new int[hits];
+
+        int n = 0;
+        n = collectHits(counts, DICTIONARY_END, counts.length, keywords, hitCounts, n);
+        int userEnd = n;
+        n = collectHits(counts, 0, STRONG_END, keywords, hitCounts, n);
+        int strongEnd = n;
+        n = collectHits(counts, STRONG_END, WEAK_END, keywords, hitCounts, n);
+        int weakEnd = n;
+        collectHits(counts, WEAK_END, DICTIONARY_END, keywords, hitCounts, n);
+
+        return new ScoreBreakdown(sum(counts, 0, STRONG_END) * 5.0,
+                Math.min(sum(counts, STRONG_END, WEAK_END) * 1.0, 30.0),
+                sum(counts, WEAK_END, DICTIONARY_END) * 12.0,
+                sum(counts, DICTIONARY_END, counts.length) * 30.0,
+                keywords, hitCounts, userEnd, strongEnd, weakEnd);
+    }
+
+    private int collectHits(int[] counts, int from, int to, String[] keywords, int[] hitCounts, int n) {
+        for (int id = from; id < to; id++) {
+            if (counts[id] > 0) {
+                keywords[n] = (id < DICTIONARY_END) ? DICTIONARY[id] : features.userTerms[id - DICTIONARY_END];
+                hitCounts[n] = counts[id];
+                n++;
             }
         }
-        for (String k : STRONG_AI_KEYWORDS) {
-            int count = countKeyword(text, k);
-            if (count > 0) sb.append(k).append(":").append(count).append(" ");
+        return n;
+    }
+
+    // 三份字典依序接成一個陣列，索引即為字典 ID
+    private static String[] dictionary() {
+        List<String> patterns = new ArrayList<>(STRONG_AI_KEYWORDS);
+        patterns.addAll(WEAK_AI_KEYWORDS);
+        patterns.addAll(CONTENT_KEYWORDS);
+        return patterns.toArray(new String[0]);
+    }
+
+    // 字典 + 使用者關鍵字 (已轉小寫) 編成一台比對器
+    private static KeywordMatcher matcherFor(String safeUserKeyword) {
+        KeywordMatcher matcher = MATCHERS.get(safeUserKeyword);
+        if (matcher != null) return matcher;
+
+        List<String> patterns = new ArrayList<>(Arrays.asList(DICTIONARY));
+        patterns.addAll(splitTerms(safeUserKeyword));
+        matcher = KeywordMatcher.compile(patterns);
+
+        if (MATCHERS.size() >= MAX_CACHED_MATCHERS) {
+            MATCHERS.clear();
         }
-        return sb.toString().trim();
+        MATCHERS.put(safeUserKeyword, matcher);
+        return matcher;
     }
 
-    private int countKeywords(String text, List<String> keywords) {
-        if (text.isEmpty()) return 0;
-        int total = 0;
-        for (String k : keywords) {
-            total += countKeyword(text, k);
+    private static List<String> splitTerms(String safeUserKeyword) {
+        List<String> terms = new ArrayList<>();
+        for (String kw : safeUserKeyword.split("\\s+")) {
+            if (kw.length() > 0) terms.add(kw);
         }
-        return total;
+        return terms;
+    }
+
+    private static boolean isEmpty(String text) {
+        return text == null || text.isEmpty();
     }
 
-    private int countKeyword(String text, String keyword) {
-        if (text.isEmpty() || keyword.isEmpty()) return 0;
-        int count = 0;
-        int index = text.indexOf(keyword);
-        while (index != -1) {
-            count++;
-            index = text.indexOf(keyword, index + keyword.length());
+    private static int sum(int[] counts, int from, int to) {
+        int total = 0;
+        for (int i = from; i < to; i++) {
+            total += counts[i];
         }
-        return count;
+        return total;
     }
 }
\ No newline at end of file
@@ -1,91 +1,373 @@
 package com.example.aiNews.model;
 
+import com.example.aiNews.util.CrawlFrontier;
+import com.example.aiNews.util.Deadline;
+import com.example.aiNews.util.DomainPolicy;
+import com.example.aiNews.util.HtmlExtractor;
+
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 
 public class WebTree {
+    private static final int MAX_LINKS_PER_PAGE = 3; // 限制每個頁面只抓 3 個子連結 (加速)
+
     public WebNode root;
-    private HashSet<String> visitedUrls;
+    private final CrawlFrontier crawlFrontier; // 已抓過的網址與內容 (可以與其他樹共用)
+    private final BiConsumer<WebPage, String> onPageScored;
     private String userKeyword;
 
     public WebTree(WebPage rootPage, String userKeyword) {
+        this(rootPage, userKeyword, new CrawlFrontier());
+        crawlFrontier.claim(rootPage.url);
+        crawlFrontier.admit(rootPage.url, rootPage.features.contentHash);
+    }
+
+    // 同一次搜尋的多棵樹共用 frontier：一個網頁 (或內容重複的轉載) 只會出現在一棵樹上
+    // 根網頁要先用同一個 frontier 認領、收錄過 (SearchEngine 抓根網頁時處理)
+    public WebTree(WebPage rootPage, String userKeyword, CrawlFrontier crawlFrontier) {
+        this(rootPage, userKeyword, crawlFrontier, (page, text) -> {});
+    }
+
+    /**
+     * onPageScored：每個子網頁計分完、內文釋放前呼叫一次 (網頁, 內文)，例如加進本地索引
+     * 會從多個執行緒同時呼叫；之後節點上只留下 PageFeatures
+     */
+    public WebTree(WebPage rootPage, String userKeyword, CrawlFrontier crawlFrontier,
+                   BiConsumer<WebPage, String> onPageScored) {
         this.root = new WebNode(rootPage);
         this.userKeyword = userKeyword;
-        this.visitedUrls = new HashSet<>();
-        this.visitedUrls.add(rootPage.url);
+        this.crawlFrontier = crawlFrontier;
+        this.onPageScored = onPageScored;
     }
 
     public void buildTree(int depth) {
-        buildTreeRecursive(root, depth, 1);
+        buildTree(depth, Deadline.none());
     }
 
-    private void buildTreeRecursive(WebNode parentNode, int maxDepth, int currentDepth) {
+    // deadline 到了就不再往下抓，已經掛上的節點保留
+    public void buildTree(int depth, Deadline deadline) {
+        buildTreeRecursive(root, depth, 1, deadline);
+    }
+
+    private void buildTreeRecursive(WebNode parentNode, int maxDepth, int currentDepth, Deadline deadline) {
         if (currentDepth >= maxDepth) return;
 
         int linksFound = 0;
-        final int MAX_LINKS_PER_PAGE = 3; // 限制每個頁面只抓 3 個子連結 (加速)
-
-        String content = parentNode.webPage.content;
-        if (content == null || content.isEmpty()) return;
 
-        Pattern p = Pattern.compile("href=\"(http[^\"]*)\"");
-        Matcher m = p.matcher(content);
+        for (String childUrl : parentNode.webPage.links()) {
+            if (linksFound >= MAX_LINKS_PER_PAGE || deadline.isExpired()) break;
 
-        while (m.find()) {
-            if (linksFound >= MAX_LINKS_PER_PAGE) break;
-            String childUrl = m.group(1);
-
-            // 過濾非網頁資源
-            if (childUrl.matches(".*\\.(css|js|png|jpg|jpeg|gif|pdf)$")) continue;
-            if (visitedUrls.contains(childUrl)) continue;
+            // 過濾非網頁資源與封鎖的網域
+            if (!isCrawlable(childUrl)) continue;
+            if (!crawlFrontier.claim(childUrl)) continue;
+            linksFound++;
 
-            WebPage childPage = new WebPage(childUrl, userKeyword);
-            visitedUrls.add(childUrl);
+            WebPage childPage = fetchChild(childUrl, deadline);
+            if (childPage == null) continue; // 與已經收錄的網頁內容重複
             WebNode childNode = new WebNode(childPage);
             parentNode.addChild(childNode);
-            linksFound++;
 
-            buildTreeRecursive(childNode, maxDepth, currentDepth + 1);
+            buildTreeRecursive(childNode, maxDepth, currentDepth + 1, deadline);
+        }
+    }
+
+    /**
+     * 並行版 buildTree：一層一層展開 (BFS)
+     * 每一層先依父節點順序挑出子連結 (同樣的過濾規則與 MAX_LINKS_PER_PAGE 上限)，
+     * 再用 virtual thread 同時抓取整層，所以每層的耗時約等於最慢的那一個 fetch。
+     * 子節點依原本的順序掛回父節點；挑連結的規則與 buildTree 相同，
+     * 但只有 depth ≤ 2 (只展開根網頁的子連結) 時樹的結構與 computeNodeScore 結果才和 buildTree 一樣：
+     * 更深時 BFS 與 buildTree 的 DFS 認領共用 / 重複子網址的先後不同，同一個網址可能掛在不同的父節點下。
+     * deadline 到了就取消這一層還沒抓完的網頁，只掛上已經抓到的，不再往下一層
+     */
+    public void buildTreeConcurrent(int depth) {
+        buildTreeConcurrent(depth, Deadline.none());
+    }
+
+    public void buildTreeConcurrent(int depth, Deadline deadline) {
+        List<WebNode> frontier = List.of(root);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int currentDepth = 1; currentDepth < depth && !frontier.isEmpty() && !deadline.isExpired(); currentDepth++) {
+
+                // 1. 依序挑選這一層要抓的連結
+                List<WebNode> parents = new ArrayList<>();
+                List<String> childUrls = new ArrayList<>();
+                for (WebNode parentNode : frontier) {
+                    for (String childUrl : selectChildLinks(parentNode)) {
+                        parents.add(parentNode);
+                        childUrls.add(childUrl);
+                    }
+                }
+
+                // 2. 整層同時抓取
+                List<Future<WebPage>> futures = new ArrayList<>();
+                for (String childUrl : childUrls) {
+                    futures.add(executor.submit(() -> fetchChild(childUrl, deadline)));
+                }
+                boolean expired = !awaitLevel(futures, deadline);
+
+                // 3. 依原順序掛回父節點，成為下一層的 frontier
+                List<WebNode> nextFrontier = new ArrayList<>();
+                for (int i = 0; i < futures.size(); i++) {
+                    WebPage childPage = pageOf(futures.get(i), childUrls.get(i));
+                    if (childPage == null) continue; // 時間到還沒抓完，或內容重複
+                    WebNode childNode = new WebNode(childPage);
+                    parents.get(i).addChild(childNode);
+                    nextFrontier.add(childNode);
+                }
+                if (expired) break;
+                frontier = nextFrontier;
+            }
+        }
+    }
+
+    /**
+     * best-first 版 buildTree：所有還沒抓的連結放進優先佇列 (LinkPriority，抓之前就能算)，
+     * 每次取最有希望的一個去抓，整棵樹最多抓 budget 個網頁。
+     * 同時最多 parallelism 個在抓；抓完一個就把它的連結加進佇列 (沒超過 depth 的話)，再補下一個，
+     * 所以有希望的深層網頁可以排在沒什麼希望的同層網頁前面。
+     * 連結要輪到才認領，沒輪到的留給別的樹。deadline 到了就取消還在抓的，已經掛上的節點保留
+     */
+    public void buildTreeBestFirst(int depth, int budget) {
+        buildTreeBestFirst(depth, budget, MAX_LINKS_PER_PAGE, Deadline.none());
+    }
+
+    public void buildTreeBestFirst(int depth, int budget, int parallelism, Deadline deadline) {
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        int[] sequence = {0};
+        enqueueLinks(root, 1, depth, queue, sequence);
+
+        Map<Future<WebPage>, Candidate> running = new HashMap<>();
+        int fetched = 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            ExecutorCompletionService<WebPage> completions = new ExecutorCompletionService<>(executor);
+            while (true) {
+                // 1. 補滿同時抓取的數量 (已經被認領的連結跳過，不算預算)
+                while (running.size() < Math.max(1, parallelism) && fetched < budget && !deadline.isExpired()) {
+                    Candidate next = pollClaimed(queue);
+                    if (next == null) break;
+                    running.put(completions.submit(() -> fetchChild(next.url, deadline)), next);
+                    fetched++;
+                }
+                if (running.isEmpty()) break;
+
+                // 2. 等任何一個抓完
+                Future<WebPage> done = completions.poll(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    for (Future<WebPage> future : running.keySet()) {
+                        future.cancel(true);
+                    }
+                    break;
+                }
+
+                // 3. 掛回父節點，它的連結加進佇列
+                Candidate candidate = running.remove(done);
+                WebPage childPage = pageOf(done, candidate.url);
+                if (childPage == null) continue; // 內容重複
+                WebNode childNode = new WebNode(childPage);
+                candidate.parent.addChild(childNode);
+                enqueueLinks(childNode, candidate.depth, depth, queue, sequence);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Crawl interrupted", e);
+        }
+    }
+
+    // 還沒抓的連結，priority 高的先；同分時先出現的先
+    private static class Candidate implements Comparable<Candidate> {
+        final WebNode parent;
+        final String url;
+        final int depth; // 這個連結抓下來後在第幾層 (根 = 1)
+        final double priority;
+        final int sequence;
+
+        Candidate(WebNode parent, String url, int depth, double priority, int sequence) {
+            this.parent = parent;
+            this.url = url;
+            this.depth = depth;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            int byPriority = Double.compare(other.priority, priority);
+            return (byPriority != 0) ? byPriority : Integer.compare(sequence, other.sequence);
+        }
+    }
+
+    // node 在第 nodeDepth 層；還沒到 depth 就把它的連結 (過濾後) 評分放進佇列
+    private void enqueueLinks(WebNode node, int nodeDepth, int depth, PriorityQueue<Candidate> queue, int[] sequence) {
+        if (nodeDepth >= depth) return;
+        PageFeatures features = node.webPage.features;
+        for (int i = 0; i < features.links.size(); i++) {
+            String childUrl = features.links.get(i);
+            if (!isCrawlable(childUrl)) continue;
+            double priority = LinkPriority.score(node.webPage.url, childUrl, features.anchorOf(i), userKeyword);
+            queue.add(new Candidate(node, childUrl, nodeDepth + 1, priority, sequence[0]++));
+        }
+    }
+
+    private Candidate pollClaimed(PriorityQueue<Candidate> queue) {
+        Candidate next;
+        while ((next = queue.poll()) != null) {
+            if (crawlFrontier.claim(next.url)) return next;
+        }
+        return null;
+    }
+
+    private List<String> selectChildLinks(WebNode parentNode) {
+        List<String> links = new ArrayList<>();
+
+        for (String childUrl : parentNode.webPage.links()) {
+            if (links.size() >= MAX_LINKS_PER_PAGE) break;
+            if (!isCrawlable(childUrl)) continue;
+            if (!crawlFrontier.claim(childUrl)) continue;
+            links.add(childUrl);
+        }
+        return links;
+    }
+
+    // 抓取並計分；內容與已收錄的網頁近似重複時回傳 null (不計分)
+    private WebPage fetchChild(String childUrl, Deadline deadline) {
+        HtmlExtractor.Page page = crawlFrontier.fetch(childUrl, deadline);
+        if (page == null) return null;
+        WebPage childPage = new WebPage(childUrl, "", "", userKeyword, page);
+        onPageScored.accept(childPage, page.text);
+        return childPage;
+    }
+
+    // 等整層抓完；deadline 先到就取消剩下的並回傳 false
+    private boolean awaitLevel(List<Future<WebPage>> futures, Deadline deadline) {
+        for (Future<WebPage> future : futures) {
+            try {
+                future.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                for (Future<WebPage> f : futures) {
+                    f.cancel(true);
+                }
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Crawl interrupted", e);
+            } catch (ExecutionException | CancellationException e) {
+                // 在 pageOf 裡處理
+            }
+        }
+        return true;
+    }
+
+    private WebPage pageOf(Future<WebPage> future, String url) {
+        switch (future.state()) {
+            case SUCCESS:
+                return future.resultNow();
+            case FAILED:
+                throw new IllegalStateException("Crawl failed: " + url, future.exceptionNow());
+            default:
+                return null;
+        }
+    }
+
+    // 非網頁資源與封鎖的網域 (社群、購物網站等) 不爬
+    private boolean isCrawlable(String url) {
+        return !url.matches(".*\\.(css|js|png|jpg|jpeg|gif|pdf)$") && !DomainPolicy.current().isBlocked(url);
+    }
+
+    /**
+     * 批次搜尋：同一棵樹換一組使用者關鍵字計分 (見 WebPage.rescore)
+     * 結構不變，只複製節點；rootPage 是已經用這個關鍵字的標題、摘要重新計分的根網頁
+     */
+    public WebTree rescore(WebPage rootPage, String userKeyword) {
+        WebTree tree = new WebTree(rootPage, userKeyword, crawlFrontier);
+        copyChildren(root, tree.root, userKeyword);
+        return tree;
+    }
+
+    private void copyChildren(WebNode from, WebNode to, String userKeyword) {
+        for (WebNode child : from.children) {
+            WebNode copy = new WebNode(child.webPage.rescore("", "", userKeyword));
+            to.addChild(copy);
+            copyChildren(child, copy, userKeyword);
         }
     }
 
     public double computeTotalScore() {
         return root.computeNodeScore();
     }
-    
-    // ★ 新增：列印功能
+
+    // 樹上的網頁數 (含根)
+    public int size() {
+        return size(root);
+    }
+
+    private int size(WebNode node) {
+        int count = 1;
+        for (WebNode child : node.children) {
+            count += size(child);
+        }
+        return count;
+    }
+
+    // 最深的節點在第幾層 (只有根 = 1)
+    public int depth() {
+        return depth(root);
+    }
+
+    private int depth(WebNode node) {
+        int deepest = 0;
+        for (WebNode child : node.children) {
+            deepest = Math.max(deepest, depth(child));
+        }
+        return deepest + 1;
+    }
+
+    // 評分明細 (需要先 computeTotalScore)
+    public ScoreExplanation explain() {
+        return new ScoreExplanation(root);
+    }
+
+    // ★ 新增：列印功能 (除錯用；線上流程改用 /search/explain)
     public void eularPrintTree() {
-        eularPrintTree(root);
-    }
-
-    private void eularPrintTree(WebNode node) {
-        if (node == null) return;
-        
-        // 計算縮排
-        int depth = node.getDepth();
-        String indent = "";
-        for (int i = 0; i < depth - 1; i++) indent += "  ";
-        
-        // 取得關鍵字統計
-        String stats = node.webPage.getKeywordStats(userKeyword);
-        
+        StringBuilder sb = new StringBuilder();
+        eularPrintTree(root, 0, sb);
+        System.out.print(sb);
+    }
+
+    private void eularPrintTree(WebNode node, int level, StringBuilder sb) {
         // 列印格式：(URL, 總分 [關鍵字詳情])
-        System.out.print(indent + "(" + node.webPage.url + "," + String.format("%.1f", node.nodeScore));
-        
+        String indent = "  ".repeat(level);
+        sb.append(indent).append('(').append(node.webPage.url).append(',')
+                .append(String.format("%.1f", node.nodeScore));
+
+        String stats = node.webPage.getKeywordStats();
         if (!stats.isEmpty()) {
-            System.out.print(" [" + stats + "]");
+            sb.append(" [").append(stats).append(']');
         }
-        
+
         if (node.children.isEmpty()) {
-            System.out.println(")");
+            sb.append(")\n");
         } else {
-            System.out.println(); // 換行印子節點
+            sb.append('\n'); // 換行印子節點
             for (WebNode child : node.children) {
-                eularPrintTree(child);
+                eularPrintTree(child, level + 1, sb);
             }
-            System.out.println(indent + ")");
+            sb.append(indent).append(")\n");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,252 @@
+package com.example.aiNews.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Google CSE 的 API key / cx 組合 (啟動時讀一次)
+ * 環境變數 GOOGLE_API_KEY_1..N / GOOGLE_CX_1..N 依序配對 (數量不同時循環取用)，
+ * 都沒設就用 application.properties 的 google.cse.apiKey / google.cse.cx (改 env 後重啟才會生效)
+ *
+ * 每組 key 記錄今天用掉的次數、錯誤率 (指數移動平均) 與冷卻時間，每次挑「最健康」的一組：
+ * - 額度用完 (403 quotaExceeded / dailyLimitExceeded)：停用到下一次額度重置 (太平洋時間午夜)
+ * - 429 / rateLimitExceeded：冷卻 30 秒起跳，連續失敗就加倍，最多 15 分鐘
+ * - key 被拒 (400 / 403 其他原因，例如 key 無效、API 沒開)：停用 1 小時
+ * - 5xx、逾時、連線錯誤：冷卻 5 秒起跳，連續失敗就加倍，最多 5 分鐘
+ * 成功一次就清掉連續失敗次數
+ */
+@Service
+public class CseKeyPool {
+
+    private static final int MAX_ENV_KEYS = 30;
+    private static final ZoneId QUOTA_ZONE = ZoneId.of("America/Los_Angeles"); // CSE 額度依太平洋時間每天重置
+    private static final double ERROR_RATE_ALPHA = 0.2;
+
+    private static final long RATE_LIMIT_BACKOFF_MS = 30_000;
+    private static final long RATE_LIMIT_MAX_BACKOFF_MS = 15 * 60_000;
+    private static final long ERROR_BACKOFF_MS = 5_000;
+    private static final long ERROR_MAX_BACKOFF_MS = 5 * 60_000;
+    private static final long REJECTED_COOLDOWN_MS = 60 * 60_000;
+
+    public enum Failure { QUOTA, RATE_LIMIT, REJECTED, ERROR }
+
+    public static class Key {
+        public final String label;
+        public final String apiKey;
+        public final String cx;
+
+        // 以下由 CseKeyPool 同步存取
+        private LocalDate day;
+        private int usedToday;
+        private double errorRate;
+        private int consecutiveFailures;
+        private long cooldownUntil;
+        private boolean quotaExhausted;
+        private long lastUsed;
+        private long successes;
+        private long failures;
+        private String lastFailure = "";
+
+        Key(String label, String apiKey, String cx) {
+            this.label = label;
+            this.apiKey = apiKey;
+            this.cx = cx;
+        }
+    }
+
+    private final List<Key> keys;
+
+    // 每組 key 每天可以用幾次 (免費版 100)，0 = 不限
+    @Value("${google.cse.daily-quota:100}")
+    private int dailyQuota = 100;
+
+    public CseKeyPool(@Value("${google.cse.apiKey}") String apiKey, @Value("${google.cse.cx}") String cx) {
+        this.keys = loadKeys(apiKey, cx);
+        System.out.println("🔑 Google CSE key pool: " + keys.size() + " key(s)");
+    }
+
+    private static List<Key> loadKeys(String apiKey, String cx) {
+        List<String> envKeys = loadEnvList("GOOGLE_API_KEY_");
+        List<String> envCxs = loadEnvList("GOOGLE_CX_");
+        List<Key> keys = new ArrayList<>();
+
+        if (envKeys.isEmpty() && envCxs.isEmpty()) {
+            if (apiKey != null && !apiKey.isBlank()) {
+                keys.add(new Key("properties", apiKey.trim(), cx == null ? "" : cx.trim()));
+            }
+            return keys;
+        }
+        // 只設了其中一種時，另一種用 properties 的值
+        if (envKeys.isEmpty()) envKeys = List.of(apiKey);
+        if (envCxs.isEmpty()) envCxs = List.of(cx);
+
+        int count = Math.max(envKeys.size(), envCxs.size());
+        for (int i = 0; i < count; i++) {
+            keys.add(new Key("env-" + (i + 1), envKeys.get(i % envKeys.size()), envCxs.get(i % envCxs.size())));
+        }
+        return keys;
+    }
+
+    // 讀取環境變數：prefix1..N，遇到沒設的就停
+    private static List<String> loadEnvList(String prefix) {
+        List<String> list = new ArrayList<>();
+        for (int i = 1; i <= MAX_ENV_KEYS; i++) {
+            String v = System.getenv(prefix + i);
+            if (v == null || v.isBlank()) break;
+            list.add(v.trim());
+        }
+        return list;
+    }
+
+    /**
+     * 挑一組可用的 key (不在冷卻中、今天還有額度)，並先算它用掉一次
+     * 健康度 = 剩餘額度比例 × (1 - 錯誤率)，同分時挑最久沒用的；exclude 是這次請求已經試過的
+     * 沒有可用的 key 時回傳 null
+     */
+    public synchronized Key acquire(Set<Key> exclude) {
+        long now = System.currentTimeMillis();
+        LocalDate today = LocalDate.now(QUOTA_ZONE);
+        Key best = null;
+        double bestHealth = -1;
+
+        for (Key key : keys) {
+            resetIfNewDay(key, today);
+            if (exclude.contains(key) || !isAvailable(key, now)) continue;
+            double health = health(key);
+            if (health > bestHealth || (health == bestHealth && key.lastUsed < best.lastUsed)) {
+                best = key;
+                bestHealth = health;
+            }
+        }
+        if (best != null) {
+            best.usedToday++;
+            best.lastUsed = now;
+        }
+        return best;
+    }
+
+    public synchronized void recordSuccess(Key key) {
+        key.successes++;
+        key.consecutiveFailures = 0;
+        key.errorRate *= (1 - ERROR_RATE_ALPHA);
+    }
+
+    public synchronized void recordFailure(Key key, Failure failure, String detail) {
+        long now = System.currentTimeMillis();
+        key.failures++;
+        key.consecutiveFailures++;
+        key.errorRate = key.errorRate * (1 - ERROR_RATE_ALPHA) + ERROR_RATE_ALPHA;
+        key.lastFailure = failure.name().toLowerCase() + (detail == null ? "" : ": " + detail);
+
+        long cooldown = switch (failure) {
+            case QUOTA -> untilQuotaReset(now);
+            case RATE_LIMIT -> backoff(RATE_LIMIT_BACKOFF_MS, RATE_LIMIT_MAX_BACKOFF_MS, key.consecutiveFailures);
+            case REJECTED -> REJECTED_COOLDOWN_MS;
+            case ERROR -> backoff(ERROR_BACKOFF_MS, ERROR_MAX_BACKOFF_MS, key.consecutiveFailures);
+        };
+        key.cooldownUntil = Math.max(key.cooldownUntil, now + cooldown);
+        if (failure == Failure.QUOTA) {
+            key.quotaExhausted = true;
+            key.usedToday = Math.max(key.usedToday, dailyQuota); // Google 說用完就是用完 (例如別的程式也在用這組 key)
+        }
+        System.out.println("⚠️ Google CSE key " + key.label + " " + key.lastFailure
+                + " (cooling down " + cooldown / 1000 + "s)");
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public synchronized int available() {
+        long now = System.currentTimeMillis();
+        LocalDate today = LocalDate.now(QUOTA_ZONE);
+        int count = 0;
+        for (Key key : keys) {
+            resetIfNewDay(key, today);
+            if (isAvailable(key, now)) count++;
+        }
+        return count;
+    }
+
+    private boolean isAvailable(Key key, long now) {
+        return now >= key.cooldownUntil && (dailyQuota <= 0 || key.usedToday < dailyQuota);
+    }
+
+    private double health(Key key) {
+        double remaining = (dailyQuota <= 0) ? 1.0 : (dailyQuota - key.usedToday) / (double) dailyQuota;
+        return remaining * (1 - key.errorRate);
+    }
+
+    // 額度重置時一併解除「額度用完」的停用
+    private void resetIfNewDay(Key key, LocalDate today) {
+        if (today.equals(key.day)) return;
+        key.day = today;
+        key.usedToday = 0;
+        if (key.quotaExhausted) {
+            key.quotaExhausted = false;
+            key.cooldownUntil = 0;
+        }
+    }
+
+    private static long untilQuotaReset(long now) {
+        ZonedDateTime midnight = LocalDate.now(QUOTA_ZONE).plusDays(1).atStartOfDay(QUOTA_ZONE);
+        return Math.max(0, midnight.toInstant().toEpochMilli() - now);
+    }
+
+    private static long backoff(long base, long max, int consecutiveFailures) {
+        int shift = Math.min(consecutiveFailures - 1, 20);
+        return Math.min(max, base << Math.max(0, shift));
+    }
+
+    // 給 /actuator/csekeys：key 只顯示最後 4 碼
+    public synchronized Map<String, Object> stats() {
+        long now = System.currentTimeMillis();
+        LocalDate today = LocalDate.now(QUOTA_ZONE);
+        List<Map<String, Object>> entries = new ArrayList<>();
+        int available = 0;
+
+        for (Key key : keys) {
+            resetIfNewDay(key, today);
+            boolean usable = isAvailable(key, now);
+            if (usable) available++;
+
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("label", key.label);
+            entry.put("key", mask(key.apiKey));
+            entry.put("cx", mask(key.cx));
+            entry.put("available", usable);
+            entry.put("used_today", key.usedToday);
+            entry.put("remaining_today", (dailyQuota <= 0) ? -1 : Math.max(0, dailyQuota - key.usedToday));
+            entry.put("health", Math.round(health(key) * 1000) / 1000.0);
+            entry.put("error_rate", Math.round(key.errorRate * 1000) / 1000.0);
+            entry.put("consecutive_failures", key.consecutiveFailures);
+            entry.put("cooldown_seconds", Math.max(0, (key.cooldownUntil - now) / 1000));
+            entry.put("successes", key.successes);
+            entry.put("failures", key.failures);
+            entry.put("last_failure", key.lastFailure);
+            entries.add(entry);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("keys", keys.size());
+        stats.put("available", available);
+        stats.put("daily_quota", dailyQuota);
+        stats.put("quota_day", today.toString());
+        stats.put("pool", entries);
+        return stats;
+    }
+
+    private static String mask(String value) {
+        if (value == null || value.length() <= 4) return "***";
+        return "***" + value.substring(value.length() - 4);
+    }
+}
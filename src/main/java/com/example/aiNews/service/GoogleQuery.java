@@ -1,32 +1,56 @@
 package com.example.aiNews.service;
 
+import com.example.aiNews.util.Deadline;
+import com.example.aiNews.util.OutboundTraffic;
+import com.example.aiNews.util.PipelineMetrics;
 import com.example.aiNews.util.Translator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Service
 public class GoogleQuery {
 
-    // ✅ 地端/備援：保留你原本 application.properties 的設定
-    @Value("${google.cse.apiKey}")
-    private String apiKey;
+    // API key / cx 由 CseKeyPool 管理 (env GOOGLE_API_KEY_* / GOOGLE_CX_*，沒設就用 application.properties)
+    private final CseKeyPool keyPool;
 
-    @Value("${google.cse.cx}")
-    private String cx;
+    // 逾時要設，否則 deadline 到了放棄等待後，背景那條連線可能一直卡著
+    private final RestTemplate restTemplate = createRestTemplate();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 10000;
 
-    // ✅ 輪換用（每次 search 會輪到下一組）
-    private static final AtomicInteger ROTATE_INDEX = new AtomicInteger(0);
+    // CSE 一頁最多 10 筆，start + num 不能超過 100
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_DEPTH = 100;
+
+    // 每個關鍵字取幾筆候選結果 (各頁同時送出，每一頁算一次 CSE 額度)
+    @Value("${google.cse.depth:30}")
+    private int depth = 30;
+
+    // 一頁最多試幾組 key (失敗就換下一組)
+    @Value("${google.cse.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    public GoogleQuery(CseKeyPool keyPool) {
+        this.keyPool = keyPool;
+    }
 
     public static class SearchItem {
         public String url;
@@ -45,107 +69,291 @@ public class GoogleQuery {
         }
     }
 
-    // 讀取環境變數：GOOGLE_API_KEY_1..N / GOOGLE_CX_1..N
-    private List<String> loadEnvList(String prefix) {
-        List<String> list = new ArrayList<>();
-        for (int i = 1; i <= 30; i++) { // 你要更多就加大
-            String v = System.getenv(prefix + i);
-            if (v == null || v.isBlank()) break;
-            list.add(v.trim());
+    /**
+     * 一次搜尋的各頁結果 (所有頁同時送出請求)
+     * items(deadline) 依頁次交出結果：第一頁回來就可以開始評分，後面的頁還在路上
+     */
+    public static class ResultPages {
+        private final List<CompletableFuture<List<SearchItem>>> pages;
+
+        ResultPages(List<CompletableFuture<List<SearchItem>>> pages) {
+            this.pages = pages;
+        }
+
+        public PagedItems items(Deadline deadline) {
+            return new PagedItems(pages, deadline);
         }
-        return list;
-    }
 
-    private String pickApiKey(List<String> envKeys, int idx) {
-        if (!envKeys.isEmpty()) {
-            return envKeys.get(Math.floorMod(idx, envKeys.size()));
+        // 所有頁的結果 (deadline 到了還沒回來的頁略過)
+        public List<SearchItem> collect(Deadline deadline) {
+            List<SearchItem> all = new ArrayList<>();
+            items(deadline).forEach(all::add);
+            return all;
         }
-        // 沒有設 env，就用你原本 properties
-        return apiKey;
     }
 
-    private String pickCx(List<String> envCxs, int idx) {
-        if (!envCxs.isEmpty()) {
-            return envCxs.get(Math.floorMod(idx, envCxs.size()));
+    /**
+     * 依頁次逐筆交出的搜尋結果，只能走訪一次
+     * 等某一頁時 deadline 到了就停止 (後面的頁也不再等)，isTruncated() = true
+     * 某一頁查詢失敗 (所有 key 都失敗) 時略過那一頁繼續，hasFailedPages() = true
+     */
+    public static class PagedItems implements Iterable<SearchItem> {
+        private final List<CompletableFuture<List<SearchItem>>> pages;
+        private final Deadline deadline;
+        private volatile boolean truncated;
+        private volatile boolean failed;
+
+        PagedItems(List<CompletableFuture<List<SearchItem>>> pages, Deadline deadline) {
+            this.pages = pages;
+            this.deadline = deadline;
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        public boolean hasFailedPages() {
+            return failed;
+        }
+
+        // 所有頁都在時間內成功回來 (結果可以放進快取)
+        public boolean isComplete() {
+            return !truncated && !failed;
+        }
+
+        @Override
+        public Iterator<SearchItem> iterator() {
+            return new Iterator<>() {
+                private int nextPage = 0;
+                private Iterator<SearchItem> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext()) {
+                        if (truncated || nextPage >= pages.size()) return false;
+                        List<SearchItem> page = await(pages.get(nextPage++));
+                        if (page == null) {
+                            truncated = true;
+                            return false;
+                        }
+                        current = page.iterator();
+                    }
+                    return true;
+                }
+
+                @Override
+                public SearchItem next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return current.next();
+                }
+            };
+        }
+
+        // 時間到或被中斷回傳 null
+        private List<SearchItem> await(CompletableFuture<List<SearchItem>> page) {
+            try {
+                return page.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                System.out.println("⏱️ GoogleQuery deadline exceeded (page " + (pages.indexOf(page) + 1) + ")");
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                failed = true;
+                return List.of();
+            }
         }
-        return cx;
     }
 
     public List<SearchItem> search(String userKeyword) {
-        try {
-            // ✅ 每次搜尋取一個輪換 index
-            int idx = ROTATE_INDEX.getAndIncrement();
-
-            // ✅ 每次呼叫時讀取 env（Render 改 env 後重啟就會生效）
-            List<String> envKeys = loadEnvList("GOOGLE_API_KEY_");
-            List<String> envCxs  = loadEnvList("GOOGLE_CX_");
-
-            String keyToUse = pickApiKey(envKeys, idx);
-            String cxToUse  = pickCx(envCxs, idx);
-
-            StringBuilder urlBuilder = new StringBuilder("https://www.googleapis.com/customsearch/v1");
-            urlBuilder.append("?key=").append(keyToUse);
-            urlBuilder.append("&cx=").append(cxToUse);
-            urlBuilder.append("&num=10");
-
-            String q;
-
-            if (containsChinese(userKeyword)) {
-                System.out.println("✅ Detected Chinese input. Applying Hybrid Search.");
-                String translatedKeyword = Translator.translate("zh-TW", "en", userKeyword);
-                String expandedKeyword = translatedKeyword + " AI technology news";
-                q = URLEncoder.encode(expandedKeyword, StandardCharsets.UTF_8);
-                urlBuilder.append("&q=").append(q);
-                urlBuilder.append("&gl=tw");
-            } else {
-                System.out.println("✅ Detected English/Global input.");
-                String expandedKeyword = userKeyword + " AI technology news";
-                q = URLEncoder.encode(expandedKeyword, StandardCharsets.UTF_8);
-                urlBuilder.append("&q=").append(q);
-            }
+        return search(userKeyword, Deadline.none());
+    }
 
-            String url = urlBuilder.toString();
+    /**
+     * 有時間上限的 search：deadline 到了還沒回應的頁就略過 (請求仍在背景結束，不會卡住)
+     */
+    public List<SearchItem> search(String userKeyword, Deadline deadline) {
+        return searchPages(userKeyword).collect(deadline);
+    }
 
-            System.out.println("\n=== Google Search Request ===");
-            // ✅ mask：避免 log 露出真正 key（如果 keyToUse 來自 properties，也一起 mask）
-            System.out.println("Query URL (masked): " + url.replace(keyToUse, "***"));
-            if (!envKeys.isEmpty() || !envCxs.isEmpty()) {
-                System.out.println("Using env rotation index=" + idx +
-                        " (envKeys=" + envKeys.size() + ", envCxs=" + envCxs.size() + ")");
-            } else {
-                System.out.println("Using properties fallback (no env GOOGLE_API_KEY_*/GOOGLE_CX_*)");
+    /**
+     * 取 google.cse.depth 筆候選結果：每 10 筆一頁 (start = 1, 11, 21 ...)，各頁同時送出
+     * 馬上回傳，結果由 ResultPages 依頁次交出；某一頁失敗時 PagedItems.hasFailedPages() = true
+     */
+    public ResultPages searchPages(String userKeyword) {
+        int total = totalResults();
+        List<CompletableFuture<List<SearchItem>>> pages = new ArrayList<>();
+        for (int start = 1; start <= total; start += PAGE_SIZE) {
+            int pageStart = start;
+            int num = Math.min(PAGE_SIZE, total - start + 1);
+            CompletableFuture<List<SearchItem>> page = new CompletableFuture<>();
+            Thread.ofVirtual().name("google-query").start(() -> {
+                try {
+                    page.complete(doSearch(userKeyword, pageStart, num));
+                } catch (Exception e) {
+                    page.completeExceptionally(e);
+                }
+            });
+            pages.add(page);
+        }
+        return new ResultPages(pages);
+    }
+
+    // 一次搜尋送出幾個 CSE 請求 (= 用掉幾次額度，不含換 key 重試)
+    public int requestsPerSearch() {
+        return (totalResults() + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    private int totalResults() {
+        return Math.min(Math.max(depth, 1), MAX_DEPTH);
+    }
+
+    /**
+     * 查一頁結果：從 key pool 挑最健康的 key，失敗就換另一組 key 重試 (最多 google.cse.max-attempts 次)
+     * 所有 key 都失敗或沒有可用的 key 時丟 IllegalStateException，那一頁算失敗而不是「沒有結果」
+     */
+    private List<SearchItem> doSearch(String userKeyword, int start, int num) {
+        String q = buildQuery(userKeyword);
+        Set<CseKeyPool.Key> tried = new HashSet<>();
+        String lastError = "no key available";
+
+        for (int attempt = 1; attempt <= Math.max(1, maxAttempts); attempt++) {
+            CseKeyPool.Key key = keyPool.acquire(tried);
+            if (key == null) break;
+            tried.add(key);
+
+            String url = "https://www.googleapis.com/customsearch/v1"
+                    + "?key=" + key.apiKey
+                    + "&cx=" + key.cx
+                    + "&num=" + num
+                    + "&start=" + start
+                    + q;
+
+            System.out.println("\n=== Google Search Request (start=" + start + ", key=" + key.label
+                    + ", attempt=" + attempt + ") ===");
+            // ✅ mask：避免 log 露出真正 key
+            System.out.println("Query URL (masked): " + url.replace(key.apiKey, "***"));
+
+            try {
+                // 已經自己編碼過，用 URI 避免 RestTemplate 再編碼一次
+                ResponseEntity<String> resp = timedRequest(url);
+                OutboundTraffic.record(url, resp.getStatusCode().value(), "application/json", resp.getBody());
+                List<SearchItem> items = parseItems(resp.getBody());
+                keyPool.recordSuccess(key);
+                return items;
+            } catch (HttpStatusCodeException e) {
+                lastError = "HTTP " + e.getStatusCode().value();
+                CseKeyPool.Failure failure = classify(e);
+                if (failure == null) {
+                    // 請求本身有問題 (換 key 也一樣)，不算 key 的錯
+                    break;
+                }
+                keyPool.recordFailure(key, failure, lastError);
+                PipelineMetrics.googleKeyFailure(failure.name().toLowerCase());
+            } catch (Exception e) {
+                lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+                keyPool.recordFailure(key, CseKeyPool.Failure.ERROR, lastError);
+                PipelineMetrics.googleKeyFailure("error");
             }
+        }
+
+        System.err.println("GoogleQuery Error: all keys failed (start=" + start + ", tried=" + tried.size()
+                + "/" + keyPool.size() + "): " + lastError);
+        throw new IllegalStateException("Google CSE unavailable: " + lastError);
+    }
 
-            ResponseEntity<Map> resp = restTemplate.getForEntity(url, Map.class);
-            Map<String, Object> body = resp.getBody();
-            List<SearchItem> items = new ArrayList<>();
+    // &q=...(&gl=tw)，中文關鍵字先翻成英文 (翻譯有快取，重試不會再送一次)
+    private static String buildQuery(String userKeyword) {
+        if (containsChinese(userKeyword)) {
+            System.out.println("✅ Detected Chinese input. Applying Hybrid Search.");
+            String translatedKeyword = Translator.translate("zh-TW", "en", userKeyword);
+            String expandedKeyword = translatedKeyword + " AI technology news";
+            return "&q=" + URLEncoder.encode(expandedKeyword, StandardCharsets.UTF_8) + "&gl=tw";
+        }
+        System.out.println("✅ Detected English/Global input.");
+        String expandedKeyword = userKeyword + " AI technology news";
+        return "&q=" + URLEncoder.encode(expandedKeyword, StandardCharsets.UTF_8);
+    }
 
-            if (body != null && body.containsKey("items")) {
-                List<Map<String, Object>> resultItems = (List<Map<String, Object>>) body.get("items");
+    private static List<SearchItem> parseItems(String json) throws Exception {
+        Map<String, Object> body = (json != null) ? MAPPER.readValue(json, Map.class) : null;
+        List<SearchItem> items = new ArrayList<>();
 
-                for (Map<String, Object> item : resultItems) {
-                    String link = (String) item.get("link");
-                    String title = (String) item.get("title");
-                    String snippet = (String) item.get("snippet");
+        if (body != null && body.containsKey("items")) {
+            List<Map<String, Object>> resultItems = (List<Map<String, Object>>) body.get("items");
 
-                    if (link != null && link.matches(".*\\.(pdf|xml|csv|xls|xlsx|doc|docx|ppt|pptx|zip|rar|gz|mht)$")) {
-                        continue;
-                    }
+            for (Map<String, Object> item : resultItems) {
+                String link = (String) item.get("link");
+                String title = (String) item.get("title");
+                String snippet = (String) item.get("snippet");
 
-                    items.add(new SearchItem(link, title, snippet));
+                if (link != null && link.matches(".*\\.(pdf|xml|csv|xls|xlsx|doc|docx|ppt|pptx|zip|rar|gz|mht)$")) {
+                    continue;
                 }
+
+                items.add(new SearchItem(link, title, snippet));
             }
+        }
+        return items;
+    }
+
+    /**
+     * CSE 的錯誤回應：{"error": {"code": 403, "errors": [{"reason": "quotaExceeded", ...}]}}
+     * 回傳 null 表示是請求本身的問題 (400 但不是 key 無效)，換 key 重試沒有意義
+     */
+    private static CseKeyPool.Failure classify(HttpStatusCodeException e) {
+        int status = e.getStatusCode().value();
+        String body = e.getResponseBodyAsString();
+        if (body != null && (body.contains("quotaExceeded") || body.contains("dailyLimitExceeded"))) {
+            return CseKeyPool.Failure.QUOTA;
+        }
+        if (status == 429 || (body != null && body.contains("rateLimitExceeded"))) {
+            return CseKeyPool.Failure.RATE_LIMIT;
+        }
+        if (status == 400) {
+            boolean badKey = body != null && (body.contains("keyInvalid") || body.contains("API key not valid"));
+            return badKey ? CseKeyPool.Failure.REJECTED : null;
+        }
+        if (status == 401 || status == 403) {
+            return CseKeyPool.Failure.REJECTED;
+        }
+        return CseKeyPool.Failure.ERROR;
+    }
 
-            return items;
+    private static RestTemplate createRestTemplate() {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        factory.setReadTimeout(READ_TIMEOUT_MS);
+        return new RestTemplate(factory);
+    }
 
-        } catch (Exception e) {
-            System.err.println("GoogleQuery Error: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
+    // 送出 CSE 請求並記錄延遲；4xx / 5xx 由 RestTemplate 丟例外，照原本流程往外拋
+    private ResponseEntity<String> timedRequest(String url) {
+        long startNanos = System.nanoTime();
+        String outcome = "error";
+        try {
+            ResponseEntity<String> resp = restTemplate.getForEntity(URI.create(OutboundTraffic.route(url)), String.class);
+            outcome = "ok";
+            return resp;
+        } catch (HttpStatusCodeException e) {
+            // 與換 key 重試用同一個判斷 (classify)，指標與 key pool 的看法一致
+            CseKeyPool.Failure failure = classify(e);
+            if (failure == CseKeyPool.Failure.QUOTA) {
+                outcome = "quota";
+                PipelineMetrics.googleQuotaError();
+            } else if (failure == CseKeyPool.Failure.RATE_LIMIT) {
+                outcome = "rate_limit";
+            } else {
+                outcome = "http_error";
+            }
+            throw e;
+        } finally {
+            PipelineMetrics.googleSearch(System.nanoTime() - startNanos, outcome);
         }
     }
 
-    private boolean containsChinese(String text) {
+    static boolean containsChinese(String text) {
         if (text == null) return false;
         Pattern p = Pattern.compile("[\u4e00-\u9fa5]");
         Matcher m = p.matcher(text);
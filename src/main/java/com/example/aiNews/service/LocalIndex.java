@@ -0,0 +1,449 @@
+package com.example.aiNews.service;
+
+import com.example.aiNews.model.SearchResult;
+import com.example.aiNews.util.TextTokenizer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 本地倒排索引：所有爬過的網頁 (根網頁 + 子網頁) 都會加進來
+ * - 每個詞一條 postings list，內容為 (docId 差值, 詞頻) 的 varint 編碼
+ * - 斷詞使用 TextTokenizer (英文單字 + 中文 bigram)
+ * - 查詢用 BM25 加上網頁本身的 AI 關鍵字數
+ * - 更新或淘汰的網頁先標記刪除，累積夠多或存檔時再壓實
+ * - 定期與關機時存到磁碟 (gzip)，啟動時載入
+ */
+@Service
+public class LocalIndex {
+
+    private static final int FILE_MAGIC = 0x4C494458; // "LIDX"
+    private static final int FILE_VERSION = 1;
+
+    // BM25 參數
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double BM25_WEIGHT = 100.0;
+    private static final double AI_KEYWORD_WEIGHT = 5.0;
+
+    private static class Doc {
+        final String url;
+        final String title;
+        final int length;
+        final int aiKeywordCount;
+        boolean deleted;
+
+        Doc(String url, String title, int length, int aiKeywordCount) {
+            this.url = url;
+            this.title = title;
+            this.length = length;
+            this.aiKeywordCount = aiKeywordCount;
+        }
+    }
+
+    // 一個詞的 postings：docId 遞增，所以存差值，再用 varint 壓縮
+    private static class Postings {
+        byte[] data = new byte[8];
+        int size = 0;
+        int docFreq = 0;
+        int lastDocId = 0;
+
+        void add(int docId, int tf) {
+            writeVarint(docId - lastDocId);
+            writeVarint(tf);
+            lastDocId = docId;
+            docFreq++;
+        }
+
+        private void writeVarint(int v) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + 5));
+            }
+            while ((v & ~0x7F) != 0) {
+                data[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            data[size++] = (byte) v;
+        }
+    }
+
+    private final List<Doc> docs = new ArrayList<>();
+    // 依加入順序排列 (更新時先刪再放，會移到最後)，第一筆就是最早加入的現存網頁
+    private final Map<String, Integer> docIdByUrl = new LinkedHashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength = 0;
+    private int liveDocs = 0;
+    private int deletedDocs = 0;
+    private volatile boolean dirty = false;
+
+    @Value("${search.local.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${search.local.file:data/local-index.bin}")
+    private String file = "data/local-index.bin";
+
+    @Value("${search.local.max-docs:50000}")
+    private int maxDocs = 50000;
+
+    @Value("${search.local.save-minutes:10}")
+    private long saveMinutes = 10;
+
+    private ScheduledExecutorService saver;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+
+        Path path = Path.of(file);
+        if (Files.exists(path)) {
+            long start = System.currentTimeMillis();
+            try {
+                load(path);
+                System.out.println("✅ Local index: " + liveDocs + " docs, " + postings.size() + " terms loaded in "
+                        + (System.currentTimeMillis() - start) + " ms");
+            } catch (IOException e) {
+                System.err.println("❌ Local index load error: " + e.getMessage());
+            }
+        }
+
+        saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "local-index-saver");
+            t.setDaemon(true);
+            return t;
+        });
+        saver.scheduleWithFixedDelay(this::saveIfDirty, saveMinutes, saveMinutes, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (saver != null) saver.shutdownNow();
+        saveIfDirty();
+    }
+
+    /**
+     * 加入 (或更新) 一個網頁；同一個 URL 舊的版本標記為刪除
+     */
+    public void add(String url, String title, String text, int aiKeywordCount) {
+        if (!enabled || url == null || text == null || text.isEmpty()) return;
+
+        List<String> tokens = TextTokenizer.tokenize((title == null ? "" : title) + " " + text);
+        if (tokens.isEmpty()) return;
+
+        Map<String, Integer> tf = new HashMap<>();
+        for (String token : tokens) {
+            tf.merge(token, 1, Integer::sum);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer oldId = docIdByUrl.get(url);
+            if (oldId != null) {
+                delete(oldId);
+            }
+            if (liveDocs >= maxDocs) {
+                evictOldest();
+            }
+
+            int docId = docs.size();
+            docs.add(new Doc(url, title == null ? "" : title, tokens.size(), aiKeywordCount));
+            docIdByUrl.put(url, docId);
+            liveDocs++;
+            totalLength += tokens.size();
+
+            for (Map.Entry<String, Integer> e : tf.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new Postings()).add(docId, e.getValue());
+            }
+            dirty = true;
+
+            // 已刪除的網頁太多會讓 docFreq 失真、浪費記憶體，就地壓實
+            if (deletedDocs > 1000 && deletedDocs > liveDocs / 2) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * BM25 + AI 關鍵字分數，回傳分數最高的 limit 筆
+     */
+    public List<SearchResult> search(String query, int limit) {
+        List<SearchResult> results = new ArrayList<>();
+        if (!enabled) return results;
+
+        LinkedHashSet<String> terms = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        if (terms.isEmpty()) return results;
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) return results;
+            double avgLength = (double) totalLength / liveDocs;
+
+            Map<Integer, double[]> scores = new HashMap<>(); // docId → [bm25, 命中次數]
+            for (String term : terms) {
+                Postings p = postings.get(term);
+                if (p == null) continue;
+
+                // docFreq 可能還算到已刪除的網頁，不能超過現存數量
+                double df = Math.min(p.docFreq, liveDocs);
+                double idf = Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+                Cursor cursor = new Cursor(p);
+                int docId = 0;
+                while (cursor.hasNext()) {
+                    docId += cursor.next();
+                    int tf = cursor.next();
+
+                    Doc doc = docs.get(docId);
+                    if (doc.deleted) continue;
+
+                    double norm = tf + K1 * (1 - B + B * doc.length / avgLength);
+                    double[] s = scores.computeIfAbsent(docId, k -> new double[2]);
+                    s[0] += idf * tf * (K1 + 1) / norm;
+                    s[1] += tf;
+                }
+            }
+
+            for (Map.Entry<Integer, double[]> e : scores.entrySet()) {
+                Doc doc = docs.get(e.getKey());
+                double score = e.getValue()[0] * BM25_WEIGHT + doc.aiKeywordCount * AI_KEYWORD_WEIGHT;
+                results.add(new SearchResult(doc.url, doc.title.isEmpty() ? doc.url : doc.title,
+                        doc.aiKeywordCount, (int) e.getValue()[1], (int) score));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        results.sort((a, b) -> Integer.compare(b.score, a.score));
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    public int size() {
+        return liveDocs;
+    }
+
+    private void delete(int docId) {
+        Doc doc = docs.get(docId);
+        if (doc.deleted) return;
+        doc.deleted = true;
+        docIdByUrl.remove(doc.url);
+        deletedDocs++;
+        liveDocs--;
+        totalLength -= doc.length;
+    }
+
+    // 超過上限時淘汰最早加入的網頁 (壓實時才真正從 postings 清掉)
+    // docIdByUrl 只有現存網頁且依加入順序，直接拿第一筆，不用從頭掃過已刪除的
+    private void evictOldest() {
+        while (liveDocs >= maxDocs && !docIdByUrl.isEmpty()) {
+            delete(docIdByUrl.values().iterator().next());
+        }
+    }
+
+    private void saveIfDirty() {
+        if (!enabled || !dirty) return;
+        try {
+            save(Path.of(file));
+        } catch (IOException e) {
+            System.err.println("❌ Local index save error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 壓實：移除已刪除的網頁、重新編號並重建 postings (呼叫端需持有 write lock)
+     */
+    private void compact() {
+        int[] newIds = new int[docs.size()];
+        List<Doc> liveList = new ArrayList<>(liveDocs);
+        for (int id = 0; id < docs.size(); id++) {
+            Doc doc = docs.get(id);
+            newIds[id] = doc.deleted ? -1 : liveList.size();
+            if (!doc.deleted) liveList.add(doc);
+        }
+
+        postings.replaceAll((term, p) -> {
+            Postings compacted = new Postings();
+            Cursor cursor = new Cursor(p);
+            int docId = 0;
+            while (cursor.hasNext()) {
+                docId += cursor.next();
+                int tf = cursor.next();
+                if (newIds[docId] >= 0) compacted.add(newIds[docId], tf);
+            }
+            return compacted;
+        });
+        postings.values().removeIf(p -> p.docFreq == 0);
+
+        docs.clear();
+        docs.addAll(liveList);
+        docIdByUrl.clear();
+        for (int id = 0; id < docs.size(); id++) {
+            docIdByUrl.put(docs.get(id).url, id);
+        }
+        deletedDocs = 0;
+    }
+
+    // 存檔用的複本：在 read lock 下複製，之後壓縮寫檔就不用擋住 add 與 search
+    private static class Snapshot {
+        final List<Doc> docs;
+        final List<String> terms;
+        final List<Postings> postings;
+
+        Snapshot(List<Doc> docs, Map<String, Postings> postings) {
+            this.docs = new ArrayList<>(docs);
+            this.terms = new ArrayList<>(postings.size());
+            this.postings = new ArrayList<>(postings.size());
+            for (Map.Entry<String, Postings> e : postings.entrySet()) {
+                Postings p = e.getValue();
+                Postings copy = new Postings();
+                copy.data = Arrays.copyOf(p.data, p.size);
+                copy.size = p.size;
+                copy.docFreq = p.docFreq;
+                copy.lastDocId = p.lastDocId;
+                this.terms.add(e.getKey());
+                this.postings.add(copy);
+            }
+        }
+    }
+
+    private void save(Path path) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        // 壓實要 write lock；壓實完降級成 read lock 再複製，複製期間查詢照常進行
+        Snapshot snapshot;
+        lock.writeLock().lock();
+        try {
+            if (deletedDocs > 0) compact();
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            snapshot = new Snapshot(docs, postings);
+            dirty = false;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(snapshot.docs.size());
+            for (Doc doc : snapshot.docs) {
+                out.writeUTF(doc.url);
+                out.writeUTF(doc.title);
+                out.writeInt(doc.length);
+                out.writeInt(doc.aiKeywordCount);
+            }
+
+            out.writeInt(snapshot.terms.size());
+            for (int i = 0; i < snapshot.terms.size(); i++) {
+                Postings p = snapshot.postings.get(i);
+                out.writeUTF(snapshot.terms.get(i));
+                out.writeInt(p.docFreq);
+                out.writeInt(p.lastDocId);
+                out.writeInt(p.size);
+                out.write(p.data, 0, p.size);
+            }
+        } catch (IOException e) {
+            dirty = true; // 沒寫成功，下次再存
+            throw e;
+        }
+
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // 部分檔案系統 (例如掛載的網路磁碟) 不支援原子換名，退回一般的取代
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path), 64 * 1024)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("unknown index format");
+            }
+
+            lock.writeLock().lock();
+            try {
+                int docCount = in.readInt();
+                for (int id = 0; id < docCount; id++) {
+                    Doc doc = new Doc(in.readUTF(), in.readUTF(), in.readInt(), in.readInt());
+                    docs.add(doc);
+                    docIdByUrl.put(doc.url, id);
+                    totalLength += doc.length;
+                }
+                liveDocs = docCount;
+
+                int termCount = in.readInt();
+                for (int i = 0; i < termCount; i++) {
+                    String term = in.readUTF();
+                    Postings p = new Postings();
+                    p.docFreq = in.readInt();
+                    p.lastDocId = in.readInt();
+                    p.size = in.readInt();
+                    p.data = new byte[Math.max(8, p.size)];
+                    in.readFully(p.data, 0, p.size);
+                    if (p.docFreq > 0) postings.put(term, p);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // 依序讀出 postings 裡的 varint
+    private static class Cursor {
+        private final byte[] data;
+        private final int size;
+        private int pos = 0;
+
+        Cursor(Postings p) {
+            this.data = p.data;
+            this.size = p.size;
+        }
+
+        boolean hasNext() {
+            return pos < size;
+        }
+
+        int next() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.aiNews.service;
+
+import com.example.aiNews.util.PipelineMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 預測性快取暖機
+ * 使用者接下來很可能點的關鍵字 (/related-keywords 的建議) 與最近的熱門查詢，
+ * 先在背景跑一次完整的 search，結果放進搜尋結果快取；之後點相關關鍵字就直接命中快取。
+ *
+ * 只在閒置時跑，不和使用者的請求搶資源：
+ * - 單一排程執行緒，一次只暖一個關鍵字；評分時同時進行的結果數限制為 prefetch.parallelism
+ *   (使用者的搜尋是 search.rank.parallelism)，爬取量只佔一小部分
+ * - 有使用者的搜尋正在進行、或系統負載 (load average / CPU 數) 超過上限時先不跑
+ * - 快取檢查與寫入不經過 searchCache.get，不影響快取命中率指標
+ * - 每小時最多用掉 prefetch.max-per-hour 次 Google CSE 額度 (一次暖機 = google.cse.depth / 10 個 CSE 請求)
+ * - 已經在快取裡的關鍵字不再跑
+ */
+@Service
+public class Prefetcher {
+
+    private static final int MAX_QUEUE = 50;
+    private static final int MAX_TRACKED_QUERIES = 1000;
+    private static final long TICK_SECONDS = 5;
+    private static final double HALF_LIFE_MILLIS = TimeUnit.HOURS.toMillis(1); // 熱門度每小時減半
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final SearchPipeline searchPipeline;
+
+    @Value("${prefetch.enabled:true}")
+    private boolean enabled = true;
+
+    // 每次 /related-keywords 取前幾個建議來暖機
+    @Value("${prefetch.suggestions:3}")
+    private int topSuggestions = 3;
+
+    // 每輪暖機熱門查詢的前幾名，以及多久一輪
+    @Value("${prefetch.trending:5}")
+    private int topTrending = 5;
+
+    @Value("${prefetch.trending-interval-minutes:10}")
+    private long trendingIntervalMinutes = 10;
+
+    @Value("${prefetch.max-per-hour:30}")
+    private int maxPerHour = 30;
+
+    @Value("${prefetch.max-load:0.75}")
+    private double maxLoad = 0.75;
+
+    // 暖機時同時評分的結果數
+    @Value("${prefetch.parallelism:1}")
+    private int parallelism = 1;
+
+    // 一個關鍵字的熱門度 (指數衰減的查詢次數)
+    private static class Trend {
+        double score;
+        long updatedAt;
+
+        synchronized void hit(long now) {
+            score = decayed(now) + 1;
+            updatedAt = now;
+        }
+
+        synchronized double decayed(long now) {
+            return score * Math.pow(0.5, (now - updatedAt) / HALF_LIFE_MILLIS);
+        }
+    }
+
+    private static class Task {
+        final String keyword;
+        final String source;
+
+        Task(String keyword, String source) {
+            this.keyword = keyword;
+            this.source = source;
+        }
+    }
+
+    private final Map<String, Trend> history = new ConcurrentHashMap<>();
+    private final LinkedBlockingDeque<Task> queue = new LinkedBlockingDeque<>(MAX_QUEUE);
+    private final Map<String, Boolean> queued = new ConcurrentHashMap<>();
+    private final Deque<Long> recentRuns = new ArrayDeque<>(); // 最近一小時內每個 CSE 請求的時間 (一次暖機佔好幾筆)
+    private final AtomicLong completed = new AtomicLong();
+
+    private ScheduledExecutorService worker;
+
+    public Prefetcher(SearchPipeline searchPipeline) {
+        this.searchPipeline = searchPipeline;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) return;
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "prefetcher");
+            t.setDaemon(true);
+            return t;
+        });
+        worker.scheduleWithFixedDelay(this::runNext, TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS);
+        worker.scheduleWithFixedDelay(this::enqueueTrending, trendingIntervalMinutes, trendingIntervalMinutes,
+                TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (worker != null) worker.shutdownNow();
+    }
+
+    // 使用者的一次 live 搜尋 (計入熱門度)
+    public void recordQuery(String keyword) {
+        String key = SearchPipeline.normalize(keyword);
+        if (key.isEmpty()) return;
+        long now = System.currentTimeMillis();
+
+        if (history.size() >= MAX_TRACKED_QUERIES && !history.containsKey(key)) {
+            // 太多了就丟掉熱門度最低的一半
+            List<Map.Entry<String, Trend>> entries = new ArrayList<>(history.entrySet());
+            entries.sort((a, b) -> Double.compare(a.getValue().decayed(now), b.getValue().decayed(now)));
+            for (int i = 0; i < entries.size() / 2; i++) {
+                history.remove(entries.get(i).getKey());
+            }
+        }
+        history.computeIfAbsent(key, k -> new Trend()).hit(now);
+    }
+
+    // 相關關鍵字 (依建議順序) 的前幾個排進暖機佇列
+    public void prefetchSuggestions(List<String> suggestions) {
+        if (!enabled || suggestions == null) return;
+        for (int i = 0; i < Math.min(topSuggestions, suggestions.size()); i++) {
+            enqueue(suggestions.get(i), "suggestion");
+        }
+    }
+
+    // 目前最熱門的幾個查詢 (快取過期的才會真的重跑)
+    public List<String> trending(int limit) {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<String, Trend>> entries = new ArrayList<>(history.entrySet());
+        entries.sort((a, b) -> Double.compare(b.getValue().decayed(now), a.getValue().decayed(now)));
+        List<String> top = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, entries.size()); i++) {
+            top.add(entries.get(i).getKey());
+        }
+        return top;
+    }
+
+    private void enqueueTrending() {
+        for (String keyword : trending(topTrending)) {
+            enqueue(keyword, "trending");
+        }
+    }
+
+    private void enqueue(String keyword, String source) {
+        String key = SearchPipeline.normalize(keyword);
+        if (key.isEmpty() || searchPipeline.isCached(key)) return;
+        if (queued.putIfAbsent(key, Boolean.TRUE) != null) return;
+        if (!queue.offerLast(new Task(key, source))) {
+            queued.remove(key); // 佇列滿了就放棄
+        }
+    }
+
+    // 每個 tick 最多暖一個關鍵字；忙碌時保留在佇列，下一個 tick 再試
+    private void runNext() {
+        Task task = queue.peekFirst();
+        if (task == null) return;
+
+        if (searchPipeline.isCached(task.keyword)) {
+            dequeue(task);
+            PipelineMetrics.prefetch(task.source, "cached");
+            return;
+        }
+        if (isBusy()) {
+            PipelineMetrics.prefetch(task.source, "busy");
+            return;
+        }
+        if (!takeBudget(searchPipeline.cseRequestsPerSearch())) {
+            PipelineMetrics.prefetch(task.source, "budget");
+            return;
+        }
+
+        dequeue(task);
+        try {
+            boolean cached = searchPipeline.prefetch(task.keyword, parallelism);
+            completed.incrementAndGet();
+            PipelineMetrics.prefetch(task.source, cached ? "ran" : "incomplete");
+            System.out.println("🔮 Prefetched (" + task.source + "): " + task.keyword + (cached ? "" : " (not cached)"));
+        } catch (Exception e) {
+            PipelineMetrics.prefetch(task.source, "error");
+            System.out.println("Prefetch error (" + task.keyword + "): " + e.getMessage());
+        }
+    }
+
+    private void dequeue(Task task) {
+        queue.remove(task);
+        queued.remove(task.keyword);
+    }
+
+    // 有使用者的搜尋正在跑，或 CPU 負載太高
+    private boolean isBusy() {
+        if (searchPipeline.inFlight() > 0) return true;
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return load >= 0 && load / cpus > maxLoad; // 取不到 load average (-1) 時不限制
+    }
+
+    // 最近一小時用掉的 CSE 請求數加上這次的還沒超過上限，就佔用這次的份
+    private boolean takeBudget(int requests) {
+        long now = System.currentTimeMillis();
+        synchronized (recentRuns) {
+            while (!recentRuns.isEmpty() && now - recentRuns.peekFirst() >= HOUR_MILLIS) {
+                recentRuns.pollFirst();
+            }
+            if (recentRuns.size() + requests > maxPerHour) return false;
+            for (int i = 0; i < requests; i++) {
+                recentRuns.addLast(now);
+            }
+            return true;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", "prefetch");
+        stats.put("enabled", enabled);
+        stats.put("queued", queue.size());
+        stats.put("completed", completed.get());
+        synchronized (recentRuns) {
+            stats.put("cse_requests_last_hour", recentRuns.size());
+        }
+        stats.put("max_per_hour", maxPerHour);
+        stats.put("cse_requests_per_run", searchPipeline.cseRequestsPerSearch());
+        stats.put("trending", trending(topTrending));
+        return stats;
+    }
+}
@@ -1,117 +1,549 @@
 package com.example.aiNews.service;
 
+import com.example.aiNews.model.ScoreExplanation;
 import com.example.aiNews.model.SearchResult;
 import com.example.aiNews.model.WebPage;
 import com.example.aiNews.model.WebTree;
 import com.example.aiNews.service.GoogleQuery.SearchItem;
+import com.example.aiNews.util.CrawlFrontier;
+import com.example.aiNews.util.Deadline;
+import com.example.aiNews.util.DomainPolicy;
+import com.example.aiNews.util.HtmlExtractor;
+import com.example.aiNews.util.PipelineMetrics;
 import com.example.aiNews.util.Translator; 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Service
 public class SearchEngine {
 
-    private static final List<String> NEWS_DOMAINS = Arrays.asList(
-            "theverge.com", "wired.com", "reuters.com", "bloomberg.com",
-            "techcrunch.com", "cnet.com", "engadget.com", "digitaltrends.com", 
-            "bbc.com", "cnn.com", "sciencealert.com",
-            "ithome.com.tw", "bnext.com.tw", "technews.tw", "udn.com", "cw.com.tw" 
-    );
-
-    private static final List<String> BLOCKED_DOMAINS = Arrays.asList(
-            "linkedin.com", "facebook.com", "instagram.com", "twitter.com", 
-            "pinterest.com", "reddit.com", "threads.net", "threads.com", 
-            "google.com", "google.com.tw", "maps.google.com", "calendar.google.com", 
-            "youtube.com", "play.google.com", "apps.apple.com", "podcasts.apple.com", 
-            "momoshop.com.tw", "pchome.com.tw", "shopee.tw", "books.com.tw", 
-            "104.com.tw", "1111.com.tw", 
-            "dictionary.cambridge.org", "moedict.tw"
-    );
+    private final LocalIndex localIndex;
 
-    public List<SearchResult> rankPages(List<SearchItem> items, String userKeyword) {
-        List<SearchResult> results = new ArrayList<>();
+    public SearchEngine(LocalIndex localIndex) {
+        this.localIndex = localIndex;
+    }
 
-        String scoringKeyword = userKeyword;
-        if (containsChinese(userKeyword)) {
-            String translated = Translator.translate("zh-TW", "en", userKeyword);
-            scoringKeyword = userKeyword + " " + translated;
+    // 是否用並行 (一層一層同時抓) 的方式建樹，false 則走原本的 DFS 逐一抓取 (best-first 關閉時才用)
+    @Value("${search.crawl.concurrent:true}")
+    private boolean concurrentCrawl = true;
+
+    // best-first 建樹：連結依錨點文字、網址路徑、同站與網域規則排序，每棵樹最多抓 budget 個網頁
+    @Value("${search.crawl.best-first:true}")
+    private boolean bestFirstCrawl = true;
+
+    @Value("${search.crawl.depth:3}")
+    private int crawlDepth = 3;
+
+    @Value("${search.crawl.budget:4}")
+    private int crawlBudget = 4;
+
+    // 每棵樹同時抓取的網頁數
+    @Value("${search.crawl.parallelism:2}")
+    private int crawlParallelism = 2;
+
+    // 同時評分的搜尋結果數上限 (每個結果 = 抓根網頁 + 建樹)
+    @Value("${search.rank.parallelism:6}")
+    private int rankParallelism = 6;
+
+    // 請求的 deadline 到了之後，還沒評完的結果是否繼續在背景跑完 (頁面進快取 / 本地索引)，false 則直接取消
+    @Value("${search.deadline.background-warm:true}")
+    private boolean backgroundWarm = true;
+
+    // 背景跑完的時間上限
+    @Value("${search.deadline.warm-seconds:30}")
+    private long warmSeconds = 30;
+
+    // 排名只保留分數最高的幾筆 (候選可能多達 100 筆，/search?page= 從這裡分頁)
+    @Value("${search.rank.top-k:50}")
+    private int topK = 50;
+
+    /**
+     * rankPages 的結果
+     * partial    : deadline 到了，results 只包含時間內評分完的結果
+     * completion : partial 且開啟背景暖機時，剩下的結果跑完後交出完整清單；其他情況為 null
+     */
+    public static class Ranking {
+        public final List<SearchResult> results;
+        public final boolean partial;
+        public final CompletableFuture<List<SearchResult>> completion;
+
+        public Ranking(List<SearchResult> results, boolean partial, CompletableFuture<List<SearchResult>> completion) {
+            this.results = results;
+            this.partial = partial;
+            this.completion = completion;
         }
+    }
+
+    public List<SearchResult> rankPages(List<SearchItem> items, String userKeyword) {
+        return rankPages(items, userKeyword, result -> {});
+    }
+
+    /**
+     * 同 rankPages，另外每評完一個結果就立刻交給 onResult (會從多個執行緒呼叫)
+     */
+    public List<SearchResult> rankPages(List<SearchItem> items, String userKeyword, Consumer<SearchResult> onResult) {
+        return rankPages(items, userKeyword, onResult, Deadline.none()).results;
+    }
+
+    /**
+     * 有時間上限的 rankPages：deadline 到了就不再等，用已經評分完的結果排序回傳 (partial)
+     * 還沒完成的評分依 search.deadline.background-warm 取消或在背景跑完
+     * items 可以是邊走訪邊到的結果 (GoogleQuery.PagedItems)：每一筆到了就開始評分
+     * 只保留分數最高的 search.rank.top-k 筆
+     */
+    public Ranking rankPages(Iterable<SearchItem> items, String userKeyword, Consumer<SearchResult> onResult,
+                             Deadline deadline) {
+        return rankPages(items, userKeyword, onResult, deadline, rankParallelism);
+    }
+
+    // parallelism：同時評分的結果數上限 (背景暖機用比 search.rank.parallelism 小的值，不和使用者搶)
+    public Ranking rankPages(Iterable<SearchItem> items, String userKeyword, Consumer<SearchResult> onResult,
+                             Deadline deadline, int parallelism) {
+        long startNanos = System.nanoTime();
+        TopResults results = new TopResults(topK);
+
+        final String keywordForScoring = scoringKeyword(userKeyword);
+
+        // 背景暖機時，抓取不受請求的 deadline 限制 (但有自己的上限)
+        boolean warm = backgroundWarm && !deadline.isUnlimited();
+        Deadline crawlDeadline = warm ? Deadline.after(Duration.ofSeconds(warmSeconds)) : deadline;
+
+        // deadline 之後評完的結果不再推給 onResult
+        AtomicBoolean streaming = new AtomicBoolean(true);
+
+        // 所有結果的樹共用：重複的網址、轉載的文章只抓一次、只計分一次
+        CrawlFrontier frontier = new CrawlFrontier();
 
-        for (SearchItem item : items) {
-            String url = item.url;
-            String title = (item.title != null) ? item.title : item.url;
+        // 每個 SearchItem 一個子任務，用 Semaphore 限制同時進行的數量
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        boolean partial = false;
+        CompletableFuture<List<SearchResult>> completion = null;
 
-            if (isBlockedSite(url)) {
-                System.out.println("🚫 Blocked junk site: " + url);
-                continue;
+        try {
+            for (SearchItem item : items) {
+                // 結果的網址依序認領，不會被別的結果的樹當成子網頁搶走 (即使那棵樹先爬到)；重複的結果只評第一個
+                boolean firstOccurrence = frontier.claimResult(item.url);
+                futures.add(executor.submit(() -> {
+                    if (!firstOccurrence) {
+                        System.out.println("🔁 Duplicate result: " + item.url);
+                        return null;
+                    }
+                    permits.acquire();
+                    try {
+                        SearchResult result = scoreItem(item, keywordForScoring, crawlDeadline, frontier);
+                        if (result != null && streaming.get()) {
+                            notifyResult(onResult, result);
+                        }
+                        return result;
+                    } finally {
+                        permits.release();
+                    }
+                }));
             }
 
-            WebPage rootPage = new WebPage(url, title, item.snippet, scoringKeyword);
-            WebTree tree = new WebTree(rootPage, scoringKeyword);
+            // 依原本的順序收集，排序後與逐一處理的結果相同
+            int next = 0;
+            for (; next < futures.size(); next++) {
+                try {
+                    SearchResult result = futures.get(next).get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+                    results.offer(result);
+                } catch (ExecutionException e) {
+                    System.out.println("Rank error: " + e.getCause());
+                } catch (TimeoutException e) {
+                    partial = true;
+                    break;
+                }
+            }
 
+            if (partial) {
+                // 時間到：後面的只收已經完成的
+                streaming.set(false);
+                for (int i = next; i < futures.size(); i++) {
+                    Future<SearchResult> future = futures.get(i);
+                    if (future.state() == Future.State.SUCCESS) {
+                        results.offer(future.resultNow());
+                    }
+                }
+                System.out.println("⏱️ Deadline reached: ranked " + results.offered() + " of " + futures.size()
+                        + " results" + (warm ? ", finishing the rest in background" : ""));
+                if (warm) {
+                    completion = finishInBackground(futures, executor);
+                }
+            }
+        } catch (InterruptedException e) {
+            // request 結束 (例如 client 斷線) 時不再等待，剩下的子任務在 finally 取消
+            Thread.currentThread().interrupt();
+        } finally {
+            streaming.set(false);
+            if (completion == null) {
+                for (Future<SearchResult> future : futures) {
+                    future.cancel(true);
+                }
+                executor.shutdownNow();
+            }
+        }
+
+        PipelineMetrics.rank(System.nanoTime() - startNanos, futures.size());
+        return new Ranking(results.sorted(), partial, completion);
+    }
+
+    // deadline 之後讓剩下的評分跑完，完成後交出完整 (排序後) 的結果
+    private CompletableFuture<List<SearchResult>> finishInBackground(List<Future<SearchResult>> futures,
+                                                                     ExecutorService executor) {
+        CompletableFuture<List<SearchResult>> completion = new CompletableFuture<>();
+        Thread.ofVirtual().name("rank-warm").start(() -> {
             try {
-                // 只有內文夠長才去爬子網頁，節省時間
-                if (rootPage.content != null && rootPage.content.length() > 200) {
-                    tree.buildTree(2);
+                TopResults all = new TopResults(topK);
+                for (Future<SearchResult> future : futures) {
+                    try {
+                        all.offer(future.get());
+                    } catch (ExecutionException e) {
+                        System.out.println("Rank error: " + e.getCause());
+                    }
                 }
-            } catch (Exception e) {
-                System.out.println("Tree error: " + e.getMessage());
+                completion.complete(all.sorted());
+            } catch (InterruptedException e) {
+                completion.completeExceptionally(e);
+            } finally {
+                executor.shutdown();
             }
+        });
+        return completion;
+    }
+
+    /**
+     * 分數前 K 高的結果：最小堆積，超過 K 筆就丟掉最低分的 (記憶體只留 K 筆結果與評分明細)
+     * 分數相同時先加入的排前面，與整份清單穩定排序的結果相同
+     */
+    private static class TopResults {
+        private final int limit;
+        private final PriorityQueue<Ranked> heap;
+        private int offered;
 
-            double treeScore = tree.computeTotalScore();
+        private static class Ranked {
+            final SearchResult result;
+            final int order;
 
-            if (isNewsSite(url)) {
-                treeScore += 200; 
-                tree.root.nodeScore += 200;
+            Ranked(SearchResult result, int order) {
+                this.result = result;
+                this.order = order;
             }
-            rootPage.score = treeScore;
-
-            System.out.println("\n=== Tree Structure for: " + title + " ===");
-            tree.eularPrintTree();
-            System.out.println("========================================\n");
-
-            // ★ 關鍵修改：大幅降低門檻
-            // 原本是 < 10，現在改成 < 1。
-            // 只要 Google 搜出來，且我們沒有判斷它是負分，就顯示給使用者。
-            // 這樣可以避免英文新聞因為摘要太短而被誤殺。
-            if (rootPage.userKeywordCount == 0 && treeScore < 1) {
-                continue;
+        }
+
+        TopResults(int limit) {
+            this.limit = Math.max(1, limit);
+            // 堆頂是最先被淘汰的：分數最低、同分時最晚加入
+            this.heap = new PriorityQueue<>((a, b) -> a.result.score != b.result.score
+                    ? Integer.compare(a.result.score, b.result.score)
+                    : Integer.compare(b.order, a.order));
+        }
+
+        // null (沒過門檻、重複) 略過
+        void offer(SearchResult result) {
+            if (result == null) return;
+            heap.offer(new Ranked(result, offered++));
+            if (heap.size() > limit) {
+                heap.poll();
             }
+        }
 
-            results.add(new SearchResult(
-                url, 
-                title, 
-                rootPage.aiKeywordCount, 
-                rootPage.userKeywordCount, 
-                (int) treeScore
-            ));
+        int offered() {
+            return offered;
         }
 
-        results.sort((a, b) -> Integer.compare(b.score, a.score));
-        return results;
+        List<SearchResult> sorted() {
+            List<Ranked> ranked = new ArrayList<>(heap);
+            ranked.sort((a, b) -> a.result.score != b.result.score
+                    ? Integer.compare(b.result.score, a.result.score)
+                    : Integer.compare(a.order, b.order));
+            List<SearchResult> results = new ArrayList<>(ranked.size());
+            for (Ranked r : ranked) {
+                results.add(r.result);
+            }
+            return results;
+        }
     }
 
-    private boolean isNewsSite(String url) {
-        if (url == null) return false;
-        for (String domain : NEWS_DOMAINS) {
-            if (url.toLowerCase().contains(domain)) return true;
+    private void notifyResult(Consumer<SearchResult> onResult, SearchResult result) {
+        try {
+            onResult.accept(result);
+        } catch (Exception e) {
+            // 推送失敗 (例如 client 已斷線) 不影響排名本身
+            System.out.println("Result callback error: " + e.getMessage());
         }
-        return false;
     }
 
-    private boolean isBlockedSite(String url) {
-        if (url == null) return false;
-        String lowerUrl = url.toLowerCase();
-        for (String domain : BLOCKED_DOMAINS) {
-            if (lowerUrl.contains(domain)) return true;
+    /**
+     * 批次排名 (/search/batch)：多個關鍵字的搜尋結果一起評分
+     * 每個不同的網址只抓一次、建一棵樹，樹上的網頁用所有關鍵字的詞一起計分 (內文只掃描一次)，
+     * 再依各關鍵字換算分數 (字典的部分相同，只有使用者關鍵字不同，見 WebPage.rescore)
+     * 整批共用一個 frontier：一個網頁 (或內容重複的轉載) 在整批裡只會出現在一棵樹上
+     * deadline 到了還沒建好的樹不等，用到這些樹的關鍵字 Ranking 標成 partial
+     *
+     * 與各關鍵字分別呼叫 rankPages 的結果不完全相同：
+     * - 子網頁的挑選 (best-first 的連結優先分數) 用的是所有關鍵字的聯集，不是單一關鍵字
+     * - 整批共用 frontier 與抓取預算：別的關鍵字的樹先認領的子網頁不會再掛到這棵樹上
+     * - 根網頁的標題、摘要在換算時才依各關鍵字計分 (scoreSnippet = false)，
+     *   建樹時子網頁的門檻判斷不含這部分
+     */
+    public Map<String, Ranking> rankBatch(Map<String, List<SearchItem>> itemsByKeyword, Deadline deadline) {
+        long startNanos = System.nanoTime();
+
+        // 每個關鍵字的計分用詞，以及整批的聯集 (樹只用聯集計分一次)
+        Map<String, String> scoringKeywords = new LinkedHashMap<>();
+        LinkedHashSet<String> allTerms = new LinkedHashSet<>();
+        for (String keyword : itemsByKeyword.keySet()) {
+            String scoring = scoringKeyword(keyword);
+            scoringKeywords.put(keyword, scoring);
+            for (String term : scoring.toLowerCase().split("\\s+")) {
+                if (!term.isEmpty()) allTerms.add(term);
+            }
         }
-        return false;
+        String batchKeyword = String.join(" ", allTerms);
+
+        CrawlFrontier frontier = new CrawlFrontier();
+        Semaphore permits = new Semaphore(Math.max(1, rankParallelism));
+        Map<String, Future<CrawledItem>> crawls = new HashMap<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        int items = 0;
+
+        Map<String, Ranking> rankings = new LinkedHashMap<>();
+        try {
+            // 1. 依出現順序認領所有不同的網址，各抓一次、建一棵樹
+            for (List<SearchItem> keywordItems : itemsByKeyword.values()) {
+                for (SearchItem item : keywordItems) {
+                    items++;
+                    String key = CrawlFrontier.normalize(item.url);
+                    if (crawls.containsKey(key)) continue;
+                    if (!frontier.claimResult(item.url)) {
+                        crawls.put(key, null);
+                        continue;
+                    }
+                    crawls.put(key, executor.submit(() -> {
+                        permits.acquire();
+                        try {
+                            return crawlItem(item, batchKeyword, false, deadline, frontier);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+            }
+
+            // 2. 各關鍵字用自己的詞 (與 Google 給的標題、摘要) 換算分數
+            for (Map.Entry<String, List<SearchItem>> entry : itemsByKeyword.entrySet()) {
+                String scoring = scoringKeywords.get(entry.getKey());
+                Set<String> seen = new HashSet<>();
+                TopResults results = new TopResults(topK);
+
+                boolean partial = false;
+                for (SearchItem item : entry.getValue()) {
+                    String key = CrawlFrontier.normalize(item.url);
+                    if (!seen.add(key)) continue; // 同一個關鍵字的重複結果只評第一個
+                    Future<CrawledItem> crawl = crawls.get(key);
+                    if (crawl == null) continue; // 與前面的結果網址重複
+                    if (!awaitCrawl(crawl, deadline)) {
+                        partial = true;
+                        continue;
+                    }
+                    CrawledItem crawled = crawledOf(crawl);
+                    if (crawled == null) continue;
+
+                    String title = titleOf(item);
+                    WebPage rootPage = crawled.tree.root.webPage.rescore(title, item.snippet, scoring);
+                    results.offer(finishItem(crawled.tree.rescore(rootPage, scoring), crawled.rule));
+                }
+                rankings.put(entry.getKey(), new Ranking(results.sorted(), partial, null));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PipelineMetrics.batch(System.nanoTime() - startNanos, itemsByKeyword.size(), items, crawls.size());
+        return rankings;
+    }
+
+    // 等一棵樹建好，最多等到 deadline；時間到還沒好回傳 false (之後的關鍵字不會再等它)
+    private boolean awaitCrawl(Future<CrawledItem> future, Deadline deadline) throws InterruptedException {
+        try {
+            future.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            // crawledOf 記錄錯誤
+        } catch (TimeoutException e) {
+            return false;
+        }
+        return true;
+    }
+
+    // 已經完成的樹 (失敗回傳 null)
+    private CrawledItem crawledOf(Future<CrawledItem> future) {
+        try {
+            return future.resultNow();
+        } catch (IllegalStateException e) {
+            if (future.state() == Future.State.FAILED) {
+                System.out.println("Rank error: " + future.exceptionNow());
+            }
+            return null;
+        }
+    }
+
+    // 抓好、建好的樹與它的網域規則 (批次裡同一個網址的多個關鍵字共用)
+    private static class CrawledItem {
+        final WebTree tree;
+        final DomainPolicy.Rule rule;
+
+        CrawledItem(WebTree tree, DomainPolicy.Rule rule) {
+            this.tree = tree;
+            this.rule = rule;
+        }
+    }
+
+    // 單一搜尋結果的評分流程：抓根網頁 → 建樹 → 計分，不符合門檻回傳 null
+    private SearchResult scoreItem(SearchItem item, String scoringKeyword, Deadline deadline,
+                                   CrawlFrontier frontier) {
+        CrawledItem crawled = crawlItem(item, scoringKeyword, true, deadline, frontier);
+        return (crawled != null) ? finishItem(crawled.tree, crawled.rule) : null;
     }
-    
+
+    /**
+     * 只重算一個結果的評分樹 (快照還原的結果沒有 explanation，/search/explain 用到時才算)
+     * 用自己的 frontier，不受同一次搜尋其他結果的樹影響，快照也沒存摘要，
+     * 所以明細的分數可能與列表上的略有不同；封鎖或沒過門檻回傳 null
+     */
+    public ScoreExplanation explainItem(SearchItem item, String userKeyword, Deadline deadline) {
+        CrawlFrontier frontier = new CrawlFrontier();
+        frontier.claimResult(item.url);
+        SearchResult result = scoreItem(item, scoringKeyword(userKeyword), deadline, frontier);
+        return (result != null) ? result.explanation : null;
+    }
+
+    /**
+     * 抓根網頁 → 計分 → 建樹；封鎖的網域或內容重複回傳 null
+     * scoreSnippet = false 時根網頁只計內文 (批次搜尋：標題、摘要之後依各關鍵字另外計分)
+     */
+    private CrawledItem crawlItem(SearchItem item, String scoringKeyword, boolean scoreSnippet, Deadline deadline,
+                                  CrawlFrontier frontier) {
+        String url = item.url;
+        String title = titleOf(item);
+
+        // 網址只解析一次，封鎖與加減分都用同一條規則
+        DomainPolicy.Rule rule = DomainPolicy.current().match(url);
+        if (rule.blocked) {
+            System.out.println("🚫 Blocked junk site: " + url);
+            return null;
+        }
+
+        // 內容與已經收錄的網頁幾乎相同 (轉載、姊妹站)：已經計分過，不再評一次
+        HtmlExtractor.Page page = frontier.fetch(url, deadline);
+        if (page == null) {
+            System.out.println("🔁 Near-duplicate content: " + url);
+            return null;
+        }
+
+        // 每個網頁計分完就加進本地索引，之後樹上只留下精簡的特徵，內文不再佔用記憶體
+        WebPage rootPage = scoreSnippet
+                ? new WebPage(url, title, item.snippet, scoringKeyword, page)
+                : new WebPage(url, "", "", scoringKeyword, page);
+        localIndex.add(url, title, page.text, rootPage.aiKeywordCount);
+        WebTree tree = new WebTree(rootPage, scoringKeyword, frontier, this::indexPage);
+
+        try {
+            // 只有內文夠長才去爬子網頁，節省時間
+            if (rootPage.features.contentLength > 200) {
+                if (bestFirstCrawl) {
+                    tree.buildTreeBestFirst(crawlDepth, crawlBudget, crawlParallelism, deadline);
+                } else if (concurrentCrawl) {
+                    tree.buildTreeConcurrent(2, deadline);
+                } else {
+                    tree.buildTree(2, deadline);
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Tree error: " + e.getMessage());
+        }
+
+        PipelineMetrics.tree(tree.size(), tree.depth());
+        return new CrawledItem(tree, rule);
+    }
+
+    // 樹的總分 + 網域加減分，不符合門檻回傳 null
+    private SearchResult finishItem(WebTree tree, DomainPolicy.Rule rule) {
+        WebPage rootPage = tree.root.webPage;
+        double treeScore = tree.computeTotalScore();
+
+        // 評分明細留下精簡版，需要時由 /search/explain 輸出 (不再每次印出整棵樹)
+        ScoreExplanation explanation = tree.explain();
+        explanation.domainWeight = rule.weight;
+
+        // 網域加減分 (新聞網站 +200 等，見 domain-policy.txt)
+        if (rule.weight != 0) {
+            treeScore += rule.weight;
+            tree.root.nodeScore += rule.weight;
+        }
+        rootPage.score = treeScore;
+
+        // ★ 關鍵修改：大幅降低門檻
+        // 原本是 < 10，現在改成 < 1。
+        // 只要 Google 搜出來，且我們沒有判斷它是負分，就顯示給使用者。
+        // 這樣可以避免英文新聞因為摘要太短而被誤殺。
+        if (rootPage.userKeywordCount == 0 && treeScore < 1) {
+            return null;
+        }
+
+        SearchResult result = new SearchResult(
+            rootPage.url, 
+            rootPage.title, 
+            rootPage.aiKeywordCount, 
+            rootPage.userKeywordCount, 
+            (int) treeScore
+        );
+        result.explanation = explanation;
+        return result;
+    }
+
+    private static String titleOf(SearchItem item) {
+        return (item.title != null) ? item.title : item.url;
+    }
+
+    // 中文關鍵字計分時一併用翻譯後的英文
+    private String scoringKeyword(String userKeyword) {
+        if (containsChinese(userKeyword)) {
+            return userKeyword + " " + Translator.translate("zh-TW", "en", userKeyword);
+        }
+        return userKeyword;
+    }
+
+    // 樹上每個抓到的網頁都加進本地索引 (計分完、內文釋放前)
+    private void indexPage(WebPage page, String text) {
+        localIndex.add(page.url, page.title, text, page.aiKeywordCount);
+    }
+
     private boolean containsChinese(String text) {
         if (text == null) return false;
         return java.util.regex.Pattern.compile("[\u4e00-\u9fa5]").matcher(text).find();
@@ -0,0 +1,336 @@
+package com.example.aiNews.service;
+
+import com.example.aiNews.model.ScoreExplanation;
+import com.example.aiNews.model.SearchResult;
+import com.example.aiNews.service.GoogleQuery.PagedItems;
+import com.example.aiNews.service.GoogleQuery.ResultPages;
+import com.example.aiNews.service.GoogleQuery.SearchItem;
+import com.example.aiNews.service.SearchEngine.Ranking;
+import com.example.aiNews.util.CacheSnapshot;
+import com.example.aiNews.util.CrawlFrontier;
+import com.example.aiNews.util.Deadline;
+import com.example.aiNews.util.ResultCache;
+import com.example.aiNews.util.SingleFlight;
+import com.example.aiNews.util.Translator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 搜尋流程的共用入口 (Google 搜尋 → 建樹評分)
+ * - 關鍵字先正規化 (去頭尾空白、合併空白、轉小寫)，大小寫或空白不同的查詢視為同一個
+ * - 同一個關鍵字同時進來的請求共用一次 GoogleQuery.searchPages 與一次 rankPages
+ * - Google 的各頁結果一回來就交給 rankPages 評分，不用等所有頁都回來
+ * - 排名結果放進結果快取，/search、/compare-llm 共用
+ */
+@Service
+public class SearchPipeline {
+
+    private final GoogleQuery googleQuery;
+    private final SearchEngine searchEngine;
+    private final LocalIndex localIndex;
+
+    // 搜尋結果快取，空結果與 partial (deadline 到了沒評完) 的結果不快取
+    private final ResultCache<String, Ranking> searchCache;
+
+    // 快照只存 /search 回應用到的欄位；評分樹明細 (explanation) 不存，還原後為 null，由 explain 需要時重算
+    private static final CacheSnapshot.Codec<Ranking> RANKING_CODEC = new CacheSnapshot.Codec<>() {
+        @Override
+        public void write(DataOutputStream out, Ranking ranking) throws IOException {
+            out.writeInt(ranking.results.size());
+            for (SearchResult result : ranking.results) {
+                CacheSnapshot.writeString(out, result.url);
+                CacheSnapshot.writeString(out, result.title);
+                out.writeInt(result.aiKeywordCount);
+                out.writeInt(result.userKeywordCount);
+                out.writeInt(result.score);
+            }
+        }
+
+        @Override
+        public Ranking read(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            List<SearchResult> results = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String url = CacheSnapshot.readString(in);
+                String title = CacheSnapshot.readString(in);
+                results.add(new SearchResult(url, title, in.readInt(), in.readInt(), in.readInt()));
+            }
+            return new Ranking(results, false, null);
+        }
+    };
+
+    private final SingleFlight<String, ResultPages> googleFlights;
+    private final SingleFlight<String, Ranking> rankFlights;
+
+    public SearchPipeline(GoogleQuery googleQuery, SearchEngine searchEngine, LocalIndex localIndex,
+                          @Value("${search.cache.max-entries:100}") int maxEntries,
+                          @Value("${search.cache.ttl-minutes:30}") long ttlMinutes,
+                          @Value("${search.cache.stale-minutes:30}") long staleMinutes,
+                          @Value("${search.coalesce.linger-seconds:5}") long lingerSeconds) {
+        this.googleQuery = googleQuery;
+        this.searchEngine = searchEngine;
+        this.localIndex = localIndex;
+        this.searchCache = new ResultCache<>("search", maxEntries,
+                Duration.ofMinutes(ttlMinutes), Duration.ofMinutes(staleMinutes),
+                ranking -> !ranking.partial && !ranking.results.isEmpty());
+        CacheSnapshot.register(searchCache, RANKING_CODEC);
+        this.googleFlights = new SingleFlight<>(lingerSeconds * 1000);
+        this.rankFlights = new SingleFlight<>(lingerSeconds * 1000);
+    }
+
+    public static String normalize(String keyword) {
+        if (keyword == null) return "";
+        return keyword.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    // Google 搜尋結果 (同一個關鍵字同時只查一次)
+    public List<SearchItem> searchItems(String keyword) {
+        return searchItems(keyword, Deadline.none());
+    }
+
+    public List<SearchItem> searchItems(String keyword, Deadline deadline) {
+        return resultPages(normalize(keyword)).collect(deadline);
+    }
+
+    // 各頁請求送出後馬上回傳，同一個關鍵字共用同一組請求
+    private ResultPages resultPages(String normalizedKeyword) {
+        return googleFlights.execute(normalizedKeyword, googleQuery::searchPages);
+    }
+
+    // 排名後的搜尋結果 (先查快取，沒有才跑完整流程)
+    public List<SearchResult> search(String keyword) {
+        return search(keyword, Deadline.none()).results;
+    }
+
+    /**
+     * 有時間上限的 search：deadline 到了回傳目前評完的結果 (Ranking.partial = true)
+     */
+    public Ranking search(String keyword, Deadline deadline) {
+        return searchCache.get(normalize(keyword), k -> rank(k, deadline, result -> {}));
+    }
+
+    private Ranking rank(String normalizedKeyword, Deadline deadline, Consumer<SearchResult> onResult) {
+        // 等別人的排名只等到自己的 deadline；別人 deadline 較短跑出的 partial 結果不拿來用
+        return rankFlights.execute(normalizedKeyword, deadline, k -> {
+            PagedItems items = resultPages(k).items(deadline);
+            Ranking ranking = searchEngine.rankPages(items, k, onResult, deadline);
+            if (!items.isComplete()) {
+                // Google 有頁沒在時間內回來或查詢失敗 (key 都不能用)：候選不完整，背景跑完的結果也不放進快取
+                return new Ranking(ranking.results, true, null);
+            }
+            warmCacheWhenComplete(k, ranking);
+            return ranking;
+        }, ranking -> !ranking.partial);
+    }
+
+    // partial 的結果在背景跑完後，完整清單放進快取，下一次查詢直接命中
+    private void warmCacheWhenComplete(String normalizedKeyword, Ranking ranking) {
+        if (ranking.completion == null) return;
+        ranking.completion.thenAccept(results ->
+                searchCache.put(normalizedKeyword, new Ranking(results, false, null)));
+    }
+
+    /**
+     * 串流版 search：每個結果評分完就交給 onResult，最後回傳排序後的完整清單
+     * 快取命中、或同一個關鍵字已經有別的請求在跑時，結果會在完成後一次交出
+     */
+    public List<SearchResult> searchStreaming(String keyword, Consumer<SearchResult> onResult) {
+        return searchStreaming(keyword, onResult, Deadline.none()).results;
+    }
+
+    public Ranking searchStreaming(String keyword, Consumer<SearchResult> onResult, Deadline deadline) {
+        String normalizedKeyword = normalize(keyword);
+
+        Ranking cached = searchCache.getIfPresent(normalizedKeyword);
+        if (cached != null) {
+            cached.results.forEach(onResult);
+            return cached;
+        }
+
+        AtomicBoolean streamed = new AtomicBoolean(false);
+        Ranking ranking = rank(normalizedKeyword, deadline, result -> {
+            streamed.set(true);
+            onResult.accept(result);
+        });
+        searchCache.put(normalizedKeyword, ranking);
+
+        if (!streamed.get()) {
+            ranking.results.forEach(onResult);
+        }
+        return ranking;
+    }
+
+    /**
+     * 批次搜尋 (/search/batch)：快取裡沒有的關鍵字一起跑
+     * - 中文關鍵字先合併成一次翻譯請求 (GoogleQuery 與計分都會用到翻譯快取)
+     * - Google 搜尋同時送出
+     * - 各關鍵字搜到的網址合在一起，每個網址只抓一次、計分一次 (SearchEngine.rankBatch)
+     * 回傳以正規化後的關鍵字為 key，順序與輸入相同；跑完的結果各自放進搜尋結果快取
+     */
+    public Map<String, Ranking> searchBatch(List<String> keywords, Deadline deadline) {
+        LinkedHashSet<String> normalized = new LinkedHashSet<>();
+        for (String keyword : keywords) {
+            String key = normalize(keyword);
+            if (!key.isEmpty()) normalized.add(key);
+        }
+
+        Map<String, Ranking> rankings = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String key : normalized) {
+            Ranking cached = searchCache.getIfPresent(key);
+            if (cached != null) {
+                rankings.put(key, cached);
+            } else {
+                missing.add(key);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<String> chinese = new ArrayList<>();
+            for (String key : missing) {
+                if (GoogleQuery.containsChinese(key)) chinese.add(key);
+            }
+            if (!chinese.isEmpty()) {
+                Translator.translateAll("zh-TW", "en", chinese);
+            }
+
+            Map<String, List<SearchItem>> itemsByKeyword = new LinkedHashMap<>();
+            Set<String> incomplete = ConcurrentHashMap.newKeySet();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                Map<String, Future<List<SearchItem>>> lookups = new LinkedHashMap<>();
+                for (String key : missing) {
+                    lookups.put(key, executor.submit(() -> {
+                        PagedItems items = resultPages(key).items(deadline);
+                        List<SearchItem> all = new ArrayList<>();
+                        items.forEach(all::add);
+                        if (!items.isComplete()) incomplete.add(key);
+                        return all;
+                    }));
+                }
+                for (Map.Entry<String, Future<List<SearchItem>>> lookup : lookups.entrySet()) {
+                    itemsByKeyword.put(lookup.getKey(), itemsOf(lookup.getValue()));
+                }
+            }
+
+            Map<String, Ranking> ranked = searchEngine.rankBatch(itemsByKeyword, deadline);
+            for (Map.Entry<String, Ranking> entry : ranked.entrySet()) {
+                Ranking ranking = entry.getValue();
+                if (incomplete.contains(entry.getKey())) {
+                    // Google 有頁沒回來或查詢失敗：標成 partial，不放進快取
+                    ranking = new Ranking(ranking.results, true, null);
+                }
+                searchCache.put(entry.getKey(), ranking);
+                rankings.put(entry.getKey(), ranking);
+            }
+        }
+
+        Map<String, Ranking> ordered = new LinkedHashMap<>();
+        for (String key : normalized) {
+            ordered.put(key, rankings.getOrDefault(key, new Ranking(List.of(), true, null)));
+        }
+        return ordered;
+    }
+
+    private List<SearchItem> itemsOf(Future<List<SearchItem>> lookup) {
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (ExecutionException e) {
+            System.out.println("GoogleQuery error: " + e.getCause());
+            return List.of();
+        }
+    }
+
+    /**
+     * 某個搜尋結果的評分樹 (與 /search 共用快取，沒有快取才跑一次搜尋)
+     * 從快照還原的結果沒有評分樹：只重算這一個結果 (不重跑整個搜尋)，算完記在結果上
+     * 網址不在結果裡時回傳 null
+     */
+    public ScoreExplanation explain(String keyword, String url, Deadline deadline) {
+        String target = CrawlFrontier.normalize(url);
+        for (SearchResult result : search(keyword, deadline).results) {
+            if (!CrawlFrontier.normalize(result.url).equals(target)) continue;
+            if (result.explanation == null) {
+                result.explanation = searchEngine.explainItem(
+                        new SearchItem(result.url, result.title, ""), normalize(keyword), deadline);
+            }
+            return result.explanation;
+        }
+        return null;
+    }
+
+    /**
+     * 本地索引查詢 (不連 Google、不爬網頁)
+     * 中文關鍵字會一併用翻譯後的英文查詢，與 rankPages 的計分方式一致
+     */
+    public List<SearchResult> searchLocal(String keyword, int limit) {
+        String query = normalize(keyword);
+        if (GoogleQuery.containsChinese(query)) {
+            query = query + " " + Translator.translate("zh-TW", "en", query);
+        }
+        return localIndex.search(query, limit);
+    }
+
+    // 這個關鍵字的排名結果是否已經在快取裡 (還沒過期)
+    public boolean isCached(String keyword) {
+        return searchCache.contains(normalize(keyword));
+    }
+
+    // 正在進行中的排名 (不同關鍵字) 數
+    public int inFlight() {
+        return rankFlights.inFlight();
+    }
+
+    /**
+     * 背景暖機 (Prefetcher)：跑一次完整搜尋並放進快取
+     * - 不經過 searchCache.get，不算進命中率 (命中率只反映使用者的請求)
+     * - 不加入 rankFlights：使用者同時搜尋同一個關鍵字時不用等這個較慢的暖機，
+     *   inFlight() 也只計算使用者的請求
+     * - 同時評分的結果數限制為 parallelism
+     * 回傳有沒有放進快取 (已經在快取裡、或結果不完整時為 false)
+     */
+    public boolean prefetch(String keyword, int parallelism) {
+        String k = normalize(keyword);
+        if (k.isEmpty() || searchCache.contains(k)) return false;
+
+        PagedItems items = resultPages(k).items(Deadline.none());
+        Ranking ranking = searchEngine.rankPages(items, k, result -> {}, Deadline.none(), parallelism);
+        if (!items.isComplete() || ranking.partial || ranking.results.isEmpty()) return false;
+        searchCache.put(k, ranking);
+        return true;
+    }
+
+    // 一次 live 搜尋用掉幾次 Google CSE 額度 (快取命中時為 0)
+    public int cseRequestsPerSearch() {
+        return googleQuery.requestsPerSearch();
+    }
+
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> stats = searchCache.stats();
+        stats.put("in_flight", rankFlights.inFlight());
+        stats.put("local_index_docs", localIndex.size());
+        return stats;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.aiNews.util;
+
+import com.example.aiNews.util.ResultCache.Stored;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * ResultCache 的磁碟快照，重啟後 (例如重新部署) 熱門查詢不用重跑一次
+ * 各快取在建立時 register，CacheSnapshotConfig 負責啟動時 load、定期與關閉時 save
+ *
+ * 檔案格式：[magic:int][savedAt:long][deflated body]
+ * body = [sectionCount:int]，每個快取一段：[name (writeUTF)][length:int][section bytes]
+ * section = [entryCount:int]，每筆 [key][expiresAt:long][lastAccess:long][value (各快取的 Codec)]
+ * 字串一律 [length:int][UTF-8 bytes] (writeString)
+ *
+ * load 與 register 的先後不固定：檔案先讀完的話，區段先留著，等快取 register 時再放進去；
+ * 到 save 時還沒 register 的快取 (例如還沒用到的 static 快取)，原本的區段原封不動寫回去
+ */
+public class CacheSnapshot {
+
+    private static final int MAGIC = 0x534E5031; // "SNP1"
+    private static final int MAX_SECTION_BYTES = 256 * 1024 * 1024;
+
+    // 快取值的序列化方式
+    public interface Codec<V> {
+        void write(DataOutputStream out, V value) throws IOException;
+
+        V read(DataInputStream in) throws IOException;
+    }
+
+    public static final Codec<String> STRING = new Codec<>() {
+        @Override
+        public void write(DataOutputStream out, String value) throws IOException {
+            writeString(out, value);
+        }
+
+        @Override
+        public String read(DataInputStream in) throws IOException {
+            return readString(in);
+        }
+    };
+
+    private static class Section<V> {
+        final ResultCache<String, V> cache;
+        final Codec<V> codec;
+
+        Section(ResultCache<String, V> cache, Codec<V> codec) {
+            this.cache = cache;
+            this.codec = codec;
+        }
+    }
+
+    private static final Map<String, Section<?>> SECTIONS = new LinkedHashMap<>();
+    private static final Map<String, byte[]> PENDING = new HashMap<>(); // 讀進來但還沒有對應快取的區段
+
+    private CacheSnapshot() {
+    }
+
+    public static synchronized <V> void register(ResultCache<String, V> cache, Codec<V> codec) {
+        Section<V> section = new Section<>(cache, codec);
+        SECTIONS.put(cache.name(), section);
+        byte[] pending = PENDING.remove(cache.name());
+        if (pending != null) {
+            restore(cache.name(), section, pending);
+        }
+    }
+
+    /**
+     * 讀取快照並放回各快取 (過期的略過)；檔案不存在回傳 0
+     * 回傳放回去的筆數 (還沒 register 的快取等 register 時才放回，不算在內)
+     */
+    public static int load(Path file) throws IOException {
+        if (!Files.exists(file)) return 0;
+
+        Map<String, byte[]> sections = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a cache snapshot: " + file);
+            }
+            in.readLong(); // savedAt
+            DataInputStream body = new DataInputStream(new InflaterInputStream(in));
+            int count = body.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = body.readUTF();
+                int length = body.readInt();
+                if (length < 0 || length > MAX_SECTION_BYTES) {
+                    throw new IOException("Corrupted cache snapshot: " + file);
+                }
+                byte[] bytes = new byte[length];
+                body.readFully(bytes);
+                sections.put(name, bytes);
+            }
+        }
+
+        int restored = 0;
+        synchronized (CacheSnapshot.class) {
+            for (Map.Entry<String, byte[]> e : sections.entrySet()) {
+                Section<?> section = SECTIONS.get(e.getKey());
+                if (section != null) {
+                    restored += restore(e.getKey(), section, e.getValue());
+                } else {
+                    PENDING.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * 寫入所有已註冊快取的快照 (先寫暫存檔再換名，寫到一半當機也不會弄壞舊的快照)
+     * 回傳寫入的筆數
+     */
+    public static synchronized int save(Path file) throws IOException {
+        Map<String, byte[]> sections = new LinkedHashMap<>(PENDING);
+        int saved = 0;
+        for (Map.Entry<String, Section<?>> e : SECTIONS.entrySet()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            saved += encode(e.getValue(), new DataOutputStream(bytes));
+            sections.put(e.getKey(), bytes.toByteArray());
+        }
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(System.currentTimeMillis());
+            DeflaterOutputStream deflater = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED));
+            DataOutputStream body = new DataOutputStream(deflater);
+            body.writeInt(sections.size());
+            for (Map.Entry<String, byte[]> e : sections.entrySet()) {
+                body.writeUTF(e.getKey());
+                body.writeInt(e.getValue().length);
+                body.write(e.getValue());
+            }
+            body.flush();
+            deflater.finish();
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // 部分檔案系統 (例如掛載的網路磁碟) 不支援原子換名，退回一般的取代
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return saved;
+    }
+
+    private static <V> int encode(Section<V> section, DataOutputStream out) throws IOException {
+        List<Stored<String, V>> entries = section.cache.entries();
+        out.writeInt(entries.size());
+        for (Stored<String, V> entry : entries) {
+            writeString(out, entry.key);
+            out.writeLong(entry.expiresAt);
+            out.writeLong(entry.lastAccess);
+            section.codec.write(out, entry.value);
+        }
+        out.flush();
+        return entries.size();
+    }
+
+    // 區段格式不對 (例如 Codec 改過) 就整段捨棄，不影響其他快取
+    private static <V> int restore(String name, Section<V> section, byte[] bytes) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        List<Stored<String, V>> entries = new ArrayList<>();
+        try {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                long expiresAt = in.readLong();
+                long lastAccess = in.readLong();
+                entries.add(new Stored<>(key, section.codec.read(in), expiresAt, lastAccess));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cache snapshot: discarding section " + name + " (" + e + ")");
+            return 0;
+        }
+
+        // 由舊到新放回去，快取滿了的時候淘汰的是最久沒讀取的
+        int restored = 0;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            Stored<String, V> e = entries.get(i);
+            if (section.cache.restore(e.key, e.value, e.expiresAt, e.lastAccess)) restored++;
+        }
+        return restored;
+    }
+
+    public static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // 區段是整段讀進記憶體再解析的，長度超過剩下的 bytes 就是格式不對 (不會配置一個超大陣列)
+    public static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        if (length > in.available()) throw new IOException("Truncated string (" + length + " bytes)");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
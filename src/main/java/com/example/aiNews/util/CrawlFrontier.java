@@ -0,0 +1,266 @@
+package com.example.aiNews.util;
+
+import com.example.aiNews.util.HtmlExtractor.Page;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 爬取範圍：一次 rankPages 裡所有結果的樹共用一個 (WebTree 單獨使用時則每棵樹一個)
+ * - 網址先正規化 (去掉追蹤參數、#片段，不分 http/https、www.，去掉結尾斜線) 再去重，
+ *   同一頁在所有樹裡只抓一次、只計分一次 (先搶到的那棵樹掛上它)；
+ *   搜尋結果的網址例外 (claimResult)：一定會有自己的樹，就算已經被別的樹當成子網頁抓過
+ * - 內容用 SimHash 比對，轉載 / 姊妹站的同一篇文章只保留第一份，後面的不掛上樹也不計分
+ *
+ * 跨請求共用的部分 (static)：
+ * - 同一個網址同時只會有一個 fetch，其他請求等它的結果：各自只等到自己的 deadline，
+ *   第一個請求因為它自己的 deadline (或被取消) 放棄時，還有時間的請求自己重抓
+ * - 抓過的網址記住內容指紋 (LRU，最多 10000 個、最多記 6 小時)，
+ *   之後遇到與這次已收錄內容重複的網址，直接跳過不抓
+ */
+public class CrawlFrontier {
+
+    // 常見的追蹤 / 分享參數，不影響網頁內容
+    private static final Set<String> TRACKING_PARAMS = new HashSet<>(Arrays.asList(
+            "fbclid", "gclid", "dclid", "gbraid", "wbraid", "msclkid", "yclid", "igshid",
+            "mc_cid", "mc_eid", "_ga", "_gl", "ref_src", "ref_url", "cmpid", "ocid", "ncid", "spm"
+    ));
+
+    private static final int MAX_KNOWN_FINGERPRINTS = 10000;
+    private static final long KNOWN_FINGERPRINT_TTL_MILLIS = TimeUnit.HOURS.toMillis(6); // 與網頁快取 TTL 相同
+
+    // 進行中的抓取 (正規化網址 → 第一個請求的抓取)
+    private static final Map<String, Flight> FETCHES = new ConcurrentHashMap<>();
+
+    // 抓過的網址 → 內容指紋，超過上限淘汰最久沒用到的 (access order)
+    private static final Map<String, Known> KNOWN_FINGERPRINTS =
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Known> eldest) {
+                    return size() > MAX_KNOWN_FINGERPRINTS;
+                }
+            };
+
+    private static class Flight {
+        final CompletableFuture<Page> page = new CompletableFuture<>();
+        final Deadline deadline;
+        volatile boolean gaveUp; // 因為自己的 deadline 到了或被取消而沒抓到
+
+        Flight(Deadline deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    private static class Known {
+        final long fingerprint;
+        final long rememberedAt;
+
+        Known(long fingerprint, long rememberedAt) {
+            this.fingerprint = fingerprint;
+            this.rememberedAt = rememberedAt;
+        }
+    }
+
+    // 這次爬取已經認領的網址 (正規化後)
+    private final Set<String> claimed = ConcurrentHashMap.newKeySet();
+
+    // 搜尋結果本身的網址 (正規化後)：子網頁不能認領，結果之間的去重也只看這個集合
+    private final Set<String> results = ConcurrentHashMap.newKeySet();
+
+    // 這次已經收錄的內容指紋：正規化網址 → 指紋
+    private final Map<String, Long> admitted = new ConcurrentHashMap<>();
+
+    /**
+     * 認領一個網址，回傳 false 代表不用抓：
+     * 這次已經有人認領過 (正規化後相同)，或之前抓過且內容與這次已收錄的網頁重複
+     */
+    public boolean claim(String url) {
+        String key = normalize(url);
+        if (results.contains(key) || !claimed.add(key)) {
+            PipelineMetrics.crawlSkipped("url");
+            return false;
+        }
+        Long known = knownFingerprint(key);
+        if (known != null && hasDuplicate(known)) {
+            PipelineMetrics.crawlSkipped("known_duplicate");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 認領一個搜尋結果的網址，回傳 false 代表與前面的結果重複 (正規化後相同)
+     * 只跟其他結果比：結果是邊到邊認領的 (CSE 後面的頁還沒回來時，前面的樹已經在爬子網頁)，
+     * 子網頁先抓到同一個網址也不影響這個結果，之後的子網頁也不能再認領它
+     */
+    public boolean claimResult(String url) {
+        String key = normalize(url);
+        if (!results.add(key)) {
+            PipelineMetrics.crawlSkipped("url");
+            return false;
+        }
+        claimed.add(key);
+        return true;
+    }
+
+    /**
+     * 抓取已認領的網址 (同一網址跨請求共用同一次抓取)
+     * 內容與這次已收錄的網頁近似重複時回傳 null
+     */
+    public Page fetch(String url, Deadline deadline) {
+        Page page = sharedFetch(url, deadline);
+        return admit(url, page.fingerprint()) ? page : null;
+    }
+
+    // 同一個網址同時只抓一次；等別人的抓取時只等到自己的 deadline
+    private static Page sharedFetch(String url, Deadline deadline) {
+        String key = normalize(url);
+        Flight mine = new Flight(deadline);
+        Flight leader = FETCHES.putIfAbsent(key, mine);
+        if (leader == null) {
+            return lead(key, url, mine);
+        }
+
+        try {
+            Page page = leader.page.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+            if (!leader.gaveUp || deadline.isExpired()) return page;
+        } catch (TimeoutException e) {
+            return Page.EMPTY; // 自己的 deadline 到了 (與自己抓到逾時相同)
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Page.EMPTY;
+        } catch (ExecutionException e) {
+            // 第一個請求抓取時出錯：還有時間就自己抓
+        }
+        return HTMLFetcher.fetchPage(url, deadline);
+    }
+
+    private static Page lead(String key, String url, Flight flight) {
+        try {
+            Page page = HTMLFetcher.fetchPage(url, flight.deadline);
+            flight.gaveUp = page == Page.EMPTY
+                    && (flight.deadline.isExpired() || Thread.currentThread().isInterrupted());
+            flight.page.complete(page);
+            return page;
+        } catch (RuntimeException | Error e) {
+            flight.page.completeExceptionally(e);
+            throw e;
+        } finally {
+            FETCHES.remove(key, flight);
+        }
+    }
+
+    /**
+     * 收錄一份內容 (SimHash 指紋)；與已收錄的近似重複時回傳 false
+     * 同一個網址重複呼叫視為已收錄；內容太短 (沒有指紋，0) 一律收錄
+     */
+    public boolean admit(String url, long fingerprint) {
+        String key = normalize(url);
+        if (admitted.containsKey(key)) return true;
+        if (fingerprint == 0L) return true;
+        remember(key, fingerprint);
+
+        // 比對與收錄要一起完成，兩份同時抓到的轉載才不會都被收錄
+        synchronized (admitted) {
+            if (hasDuplicate(fingerprint)) {
+                PipelineMetrics.crawlSkipped("near_duplicate");
+                return false;
+            }
+            admitted.put(key, fingerprint);
+        }
+        return true;
+    }
+
+    // 這次已收錄的內容裡有沒有與 fingerprint 近似重複的
+    private boolean hasDuplicate(long fingerprint) {
+        for (long other : admitted.values()) {
+            if (SimHash.isNearDuplicate(other, fingerprint)) return true;
+        }
+        return false;
+    }
+
+    private static void remember(String key, long fingerprint) {
+        synchronized (KNOWN_FINGERPRINTS) {
+            KNOWN_FINGERPRINTS.put(key, new Known(fingerprint, System.currentTimeMillis()));
+        }
+    }
+
+    // 記住的指紋 (超過 6 小時的當作沒有，網頁內容可能已經改了)
+    private static Long knownFingerprint(String key) {
+        synchronized (KNOWN_FINGERPRINTS) {
+            Known known = KNOWN_FINGERPRINTS.get(key);
+            if (known == null) return null;
+            if (System.currentTimeMillis() - known.rememberedAt >= KNOWN_FINGERPRINT_TTL_MILLIS) {
+                KNOWN_FINGERPRINTS.remove(key);
+                return null;
+            }
+            return known.fingerprint;
+        }
+    }
+
+    /**
+     * 去重用的網址 key (不是可以直接連線的網址)：
+     * 不含 scheme、host 轉小寫並去掉 www. 與預設 port、去掉 #片段與結尾斜線、
+     * 移除 utm_* 等追蹤參數，其餘參數排序
+     * 例：https://www.Example.com/news/?utm_source=x&b=2&a=1#top → //example.com/news?a=1&b=2
+     */
+    public static String normalize(String url) {
+        if (url == null) return "";
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            String scheme = uri.getScheme();
+            String host = uri.getHost();
+            if (host == null || scheme == null
+                    || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))) {
+                return trimmed;
+            }
+
+            StringBuilder key = new StringBuilder("//");
+            host = host.toLowerCase(Locale.ROOT);
+            key.append(host.startsWith("www.") ? host.substring(4) : host);
+            int port = uri.getPort();
+            if (port != -1 && port != 80 && port != 443) {
+                key.append(':').append(port);
+            }
+
+            String path = (uri.getRawPath() != null) ? uri.getRawPath() : "";
+            int end = path.length();
+            while (end > 0 && path.charAt(end - 1) == '/') end--;
+            key.append(path, 0, end);
+
+            String query = uri.getRawQuery();
+            if (query != null && !query.isEmpty()) {
+                List<String> params = new ArrayList<>();
+                for (String param : query.split("&")) {
+                    if (param.isEmpty()) continue;
+                    int eq = param.indexOf('=');
+                    String name = (eq >= 0 ? param.substring(0, eq) : param).toLowerCase(Locale.ROOT);
+                    if (name.startsWith("utm_") || TRACKING_PARAMS.contains(name)) continue;
+                    params.add(param);
+                }
+                if (!params.isEmpty()) {
+                    Collections.sort(params);
+                    key.append('?').append(String.join("&", params));
+                }
+            }
+            return key.toString();
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+    }
+}
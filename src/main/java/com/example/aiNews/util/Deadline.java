@@ -0,0 +1,63 @@
+package com.example.aiNews.util;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一個請求的截止時間，從 controller 一路傳到 GoogleQuery / rankPages / WebTree / FetchClient
+ * 各層用剩餘時間當作等待上限，時間到就放棄還沒完成的工作
+ */
+public final class Deadline {
+
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    // 沒有截止時間 (背景工作、benchmark、舊的呼叫方式)
+    public static Deadline none() {
+        return NONE;
+    }
+
+    // 從現在起算；0 或負數代表不限時
+    public static Deadline after(Duration budget) {
+        if (budget == null || budget.isZero() || budget.isNegative()) return NONE;
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    public boolean isUnlimited() {
+        return this == NONE;
+    }
+
+    public boolean isExpired() {
+        return !isUnlimited() && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    // 剩餘時間 (不會是負數)；不限時回傳 Long.MAX_VALUE
+    public long remainingNanos() {
+        if (isUnlimited()) return Long.MAX_VALUE;
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    public long remainingMillis() {
+        if (isUnlimited()) return Long.MAX_VALUE;
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+    }
+
+    // 截止時間比 other 晚 (不限時比任何有限的都晚)
+    public boolean endsAfter(Deadline other) {
+        if (isUnlimited()) return !other.isUnlimited();
+        if (other.isUnlimited()) return false;
+        return deadlineNanos - other.deadlineNanos > 0;
+    }
+
+    // 取 timeout 與剩餘時間較小的那個 (給 HTTP 請求逾時之類使用)
+    public Duration cap(Duration timeout) {
+        if (isUnlimited()) return timeout;
+        long remaining = remainingNanos();
+        return (remaining < timeout.toNanos()) ? Duration.ofNanos(remaining) : timeout;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.aiNews.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 網域規則：哪些網站封鎖 (不列入結果、也不當子網頁爬)、哪些網站加減分
+ * 規則存在以「反轉 label」為路徑的 trie：www.reuters.com → com / reuters / www
+ * 一個網址只解析一次 host，從頂層 label 往下走，最多走 label 數那麼多步；
+ * 走到的最後一條規則 (最長的後綴) 生效，所以 news.google.com 可以覆蓋 google.com 的規則。
+ * 只比對完整的 label：reuters.com 符合 reuters.com 與 www.reuters.com，不符合 notreuters.com 或 reuters.com.evil
+ *
+ * 規則檔一行一條，# 之後是註解：
+ *   reuters.com    +200     加分 (寫進樹的總分)
+ *   spam.example   -50      減分
+ *   linkedin.com   block    封鎖
+ *
+ * 目前的規則 (current) 由 DomainPolicyConfig 載入，規則檔改了會自動重新載入並整份替換
+ */
+public class DomainPolicy {
+
+    public static class Rule {
+        public static final Rule NONE = new Rule("", false, 0);
+
+        public final String domain;
+        public final boolean blocked;
+        public final int weight;
+
+        Rule(String domain, boolean blocked, int weight) {
+            this.domain = domain;
+            this.blocked = blocked;
+            this.weight = weight;
+        }
+    }
+
+    private static class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Rule rule;
+    }
+
+    private static final String DEFAULT_RESOURCE = "domain-policy.txt";
+
+    private static volatile DomainPolicy current = defaults();
+
+    private final Node root = new Node();
+    private final String source;
+    private int size = 0;
+
+    private DomainPolicy(String source) {
+        this.source = source;
+    }
+
+    public static DomainPolicy current() {
+        return current;
+    }
+
+    public static void install(DomainPolicy policy) {
+        current = policy;
+    }
+
+    // classpath 裡的預設規則 (沒有外部規則檔時使用)
+    public static DomainPolicy defaults() {
+        InputStream in = DomainPolicy.class.getClassLoader().getResourceAsStream(DEFAULT_RESOURCE);
+        if (in == null) return new DomainPolicy("empty");
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return parse(reader, "classpath:" + DEFAULT_RESOURCE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + DEFAULT_RESOURCE, e);
+        }
+    }
+
+    public static DomainPolicy load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader, file.toString());
+        }
+    }
+
+    // 格式錯誤丟 IllegalArgumentException (含行號)，呼叫端保留原本的規則
+    public static DomainPolicy parse(Reader reader, String source) throws IOException {
+        DomainPolicy policy = new DomainPolicy(source);
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNo = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNo++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            String[] parts = line.split("\\s+");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(source + ":" + lineNo + ": expected '<domain> <block|weight>'");
+            }
+            String domain = parts[0].toLowerCase(Locale.ROOT);
+            if (domain.startsWith("*.")) domain = domain.substring(2);
+            if (domain.startsWith(".")) domain = domain.substring(1);
+            if (domain.isEmpty() || domain.contains("/")) {
+                throw new IllegalArgumentException(source + ":" + lineNo + ": invalid domain '" + parts[0] + "'");
+            }
+
+            Rule rule;
+            if (parts[1].equalsIgnoreCase("block")) {
+                rule = new Rule(domain, true, 0);
+            } else {
+                try {
+                    rule = new Rule(domain, false, Integer.parseInt(parts[1]));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(source + ":" + lineNo + ": invalid action '" + parts[1] + "'");
+                }
+            }
+            policy.add(rule);
+        }
+        return policy;
+    }
+
+    private void add(Rule rule) {
+        Node node = root;
+        String domain = rule.domain;
+        int end = domain.length();
+        while (end > 0) {
+            int dot = domain.lastIndexOf('.', end - 1);
+            String label = domain.substring(dot + 1, end);
+            node = node.children.computeIfAbsent(label, k -> new Node());
+            end = dot;
+        }
+        if (node.rule == null) size++;
+        node.rule = rule;
+    }
+
+    // 網址對應到的規則 (最長後綴)，沒有符合的回傳 Rule.NONE
+    public Rule match(String url) {
+        String host = hostOf(url);
+        if (host.isEmpty()) return Rule.NONE;
+
+        Rule matched = Rule.NONE;
+        Node node = root;
+        int end = host.length();
+        while (end > 0) {
+            int dot = host.lastIndexOf('.', end - 1);
+            node = node.children.get(host.substring(dot + 1, end));
+            if (node == null) break;
+            if (node.rule != null) matched = node.rule;
+            end = dot;
+        }
+        return matched;
+    }
+
+    public boolean isBlocked(String url) {
+        return match(url).blocked;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    /**
+     * 取出網址的 host (轉小寫，不含 userinfo / port / 結尾的點)，不經過 URI 解析
+     * 不是 scheme://host 形式的網址回傳空字串
+     */
+    static String hostOf(String url) {
+        if (url == null) return "";
+        int start = url.indexOf("://");
+        if (start < 0) return "";
+        start += 3;
+
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#') break;
+            end++;
+        }
+        int at = url.lastIndexOf('@', end - 1);
+        if (at >= start) start = at + 1;
+
+        int colon = url.indexOf(':', start);
+        if (colon >= 0 && colon < end) end = colon;
+        while (end > start && url.charAt(end - 1) == '.') end--;
+
+        return url.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+}
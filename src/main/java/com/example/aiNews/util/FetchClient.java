@@ -0,0 +1,283 @@
+package com.example.aiNews.util;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 網頁抓取共用的 HTTP client (整個程式只建一次)
+ * - 連線池 + keep-alive，支援 HTTP/2 (ALPN 協商不到就退回 HTTP/1.1)
+ * - SSLContext 只建一次：同一個 session cache，TLS 可以 resume，不用每次完整握手；
+ *   也不再改動 JVM 全域的 HttpsURLConnection 預設值
+ * - 每個 host 同時最多幾個請求，並且兩次請求之間至少間隔 politeness 時間
+ * - 全域同時進行的請求數上限
+ * - 讀取 body 也受同一個逾時限制：HttpRequest.timeout 只管到收到 header 為止，
+ *   之後慢慢送 body 的網站由 watchdog 在時間到時關閉 stream，名額不會一直被佔住
+ * 等不到名額 (超過請求逾時或請求的 Deadline) 就放棄這次抓取
+ */
+public class FetchClient {
+
+    // 讀取回應內容 (串流)；可以讀到一半就回傳，剩下的不會下載
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        T read(InputStream body, String contentType) throws IOException;
+    }
+
+    public static class Response<T> {
+        public final int status;
+        public final T body;          // 只有 2xx 才會讀取 body，其他狀態為 null
+        public final long bytesRead;
+        public final String contentType;
+        public final String etag;
+        public final String lastModified;
+
+        Response(int status, T body, long bytesRead, String contentType, String etag, String lastModified) {
+            this.status = status;
+            this.body = body;
+            this.bytesRead = bytesRead;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    // 計算讀了多少 bytes，並在超過上限時當作結尾
+    private static class BoundedInputStream extends FilterInputStream {
+        private final long max;
+        private long count = 0;
+
+        BoundedInputStream(InputStream in, long max) {
+            super(in);
+            this.max = max;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (count >= max) return -1;
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (count >= max) return -1;
+            int n = super.read(b, off, (int) Math.min(len, max - count));
+            if (n > 0) count += n;
+            return n;
+        }
+
+        long count() {
+            return count;
+        }
+    }
+
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5); // 避免卡在惡意網站
+    private static final int MAX_BODY_BYTES = 1024 * 1024 * 2; // 新聞通常不會超過 2MB，避免記憶體攻擊
+    private static final int HOST_CLEANUP_THRESHOLD = 1000;
+
+    // 每個 host 的名額與下一次可以開始請求的時間
+    private static class HostGate {
+        final Semaphore permits;
+        long nextStartNanos;
+
+        HostGate(int maxPerHost) {
+            this.permits = new Semaphore(maxPerHost, true);
+        }
+
+        // 預約下一個開始時間，回傳還要等多久
+        synchronized long reserve(long politenessNanos) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextStartNanos);
+            nextStartNanos = start + politenessNanos;
+            return start - now;
+        }
+
+        synchronized boolean isIdle(int maxPerHost) {
+            return permits.availablePermits() == maxPerHost && System.nanoTime() >= nextStartNanos;
+        }
+    }
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .sslContext(trustAllContext())
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    // 時間到就關閉還在讀的 body (關閉後卡在 read 的執行緒會收到 IOException)
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "fetch-body-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final ConcurrentHashMap<String, HostGate> HOSTS = new ConcurrentHashMap<>();
+
+    private static volatile Semaphore globalPermits = new Semaphore(32, true);
+    private static volatile int maxPerHost = 2;
+    private static volatile long politenessNanos = TimeUnit.MILLISECONDS.toNanos(200);
+
+    public static void configure(int maxInFlight, int perHost, long politenessMillis) {
+        globalPermits = new Semaphore(Math.max(1, maxInFlight), true);
+        maxPerHost = Math.max(1, perHost);
+        politenessNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, politenessMillis));
+        HOSTS.clear();
+    }
+
+    /**
+     * GET 一個網址；url 是原始網址 (用來決定 host 名額)，target 是實際送出的網址 (replay 模式會不同)
+     * 排隊等名額與請求本身都不會超過 requestDeadline 的剩餘時間
+     */
+    public static <T> Response<T> get(String url, String target, Map<String, String> headers, Deadline requestDeadline,
+                                      BodyReader<T> reader) throws IOException, InterruptedException {
+        if (requestDeadline.isExpired()) {
+            throw new IOException("Deadline exceeded: " + url);
+        }
+        Deadline deadline = Deadline.after(requestDeadline.cap(REQUEST_TIMEOUT));
+
+        HostGate gate = gateFor(hostKey(url));
+        if (!gate.permits.tryAcquire(deadline.remainingNanos(), TimeUnit.NANOSECONDS)) {
+            throw new IOException("Host busy: " + url);
+        }
+        try {
+            long wait = gate.reserve(politenessNanos);
+            if (wait >= deadline.remainingNanos()) {
+                throw new IOException("Deadline exceeded while waiting for " + url);
+            }
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+
+            Semaphore global = globalPermits;
+            if (!global.tryAcquire(deadline.remainingNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IOException("Fetch slots exhausted: " + url);
+            }
+            try {
+                return send(target, headers, deadline, reader);
+            } finally {
+                global.release();
+            }
+        } finally {
+            gate.permits.release();
+        }
+    }
+
+    private static <T> Response<T> send(String target, Map<String, String> headers, Deadline deadline,
+                                        BodyReader<T> reader) throws IOException, InterruptedException {
+        Duration timeout = deadline.cap(REQUEST_TIMEOUT);
+        if (timeout.toMillis() <= 0) {
+            throw new IOException("Deadline exceeded: " + target);
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(target))
+                .timeout(timeout)
+                .header("User-Agent", USER_AGENT)
+                .GET();
+        headers.forEach(builder::header);
+
+        HttpResponse<InputStream> response = CLIENT.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+
+        // 超過上限的部分不讀；reader 提早結束時關閉 stream 會中斷這條連線 (HTTP/2 只重設這個 stream)
+        InputStream raw = response.body();
+        AtomicBoolean timedOut = new AtomicBoolean(false);
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            timedOut.set(true);
+            closeQuietly(raw);
+        }, deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+
+        T body;
+        long bytesRead;
+        try (BoundedInputStream in = new BoundedInputStream(raw, MAX_BODY_BYTES)) {
+            body = (response.statusCode() / 100 == 2) ? reader.read(in, contentType) : null;
+            bytesRead = in.count();
+        } catch (IOException e) {
+            if (timedOut.get()) throw new IOException("Body read timed out: " + target, e);
+            throw e;
+        } finally {
+            watchdog.cancel(false);
+        }
+        // 被 watchdog 關掉時 reader 可能把中斷當成結尾，只讀到一半的內容不能當作完整的網頁
+        if (timedOut.get()) throw new IOException("Body read timed out: " + target);
+
+        return new Response<>(response.statusCode(), body, bytesRead, contentType,
+                response.headers().firstValue("ETag").orElse(""),
+                response.headers().firstValue("Last-Modified").orElse(""));
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // 只是要中斷讀取
+        }
+    }
+
+    private static HostGate gateFor(String host) {
+        if (HOSTS.size() > HOST_CLEANUP_THRESHOLD) {
+            int perHost = maxPerHost;
+            HOSTS.values().removeIf(g -> g.isIdle(perHost));
+        }
+        return HOSTS.computeIfAbsent(host, h -> new HostGate(maxPerHost));
+    }
+
+    private static String hostKey(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return (host != null) ? host.toLowerCase() : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hosts", HOSTS.size());
+        stats.put("global_available", globalPermits.availablePermits());
+        stats.put("max_per_host", maxPerHost);
+        stats.put("politeness_ms", TimeUnit.NANOSECONDS.toMillis(politenessNanos));
+        return stats;
+    }
+
+    // 寬鬆的 SSL (為了抓取憑證過期的老舊新聞網)；只給這個 client 用
+    private static SSLContext trustAllContext() {
+        TrustManager[] trustAllCerts = new TrustManager[]{
+            new X509TrustManager() {
+                public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
+                public void checkClientTrusted(X509Certificate[] certs, String authType) {}
+                public void checkServerTrusted(X509Certificate[] certs, String authType) {}
+            }
+        };
+        try {
+            SSLContext sc = SSLContext.getInstance("TLS");
+            sc.init(null, trustAllCerts, new SecureRandom());
+            return sc;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot create SSL context", e);
+        }
+    }
+}
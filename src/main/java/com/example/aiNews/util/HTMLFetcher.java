@@ -1,50 +1,146 @@
 package com.example.aiNews.util;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import com.example.aiNews.util.HtmlExtractor.Page;
+
 import java.io.IOException;
-import javax.net.ssl.*;
-import java.security.cert.X509Certificate;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 public class HTMLFetcher {
 
+    // 磁碟快取 (由 PageCacheConfig 在啟動時設定；沒設定就跟以前一樣每次都下載)
+    private static volatile PageStore pageStore;
+    private static volatile long cacheTtlMillis;
+
+    public static void configureCache(PageStore store, Duration ttl) {
+        pageStore = store;
+        cacheTtlMillis = ttl.toMillis();
+    }
+
+    // benchmark / 離線測試用：取代實際的網路抓取，回傳該網址的 HTML (null = 正常抓取)
+    private static volatile Function<String, String> fetchOverride;
+
+    public static void setFetchOverride(Function<String, String> override) {
+        fetchOverride = override;
+    }
+
     public static String fetch(String url) {
+        return fetchPage(url, Deadline.none()).text;
+    }
+
+    public static String fetch(String url, Deadline deadline) {
+        return fetchPage(url, deadline).text;
+    }
+
+    /**
+     * 抓取網頁並一次取出文字與連結 (HtmlExtractor，不建 DOM)
+     * 時間到 (deadline) 或抓取失敗時回傳 Page.EMPTY
+     */
+    public static Page fetchPage(String url, Deadline deadline) {
+        Function<String, String> override = fetchOverride;
+        if (override != null) {
+            return HtmlExtractor.extract(override.apply(url), url);
+        }
+
         // [防護 1] 絕對不要去碰執行檔或壓縮檔 (這是病毒最常見的來源)
         if (url.matches(".*\\.(exe|zip|rar|pdf|doc|docx|xls|xlsx|ppt|pptx|jpg|png|gif|mp4|mp3)$")) {
             System.out.println("⚠️ Skip binary file: " + url);
-            return "";
+            return Page.EMPTY;
         }
 
+        PageStore store = pageStore;
+        PageStore.Entry cached = (store != null) ? store.lookup(url) : null;
+        long startNanos = System.nanoTime();
+
         try {
-            // 設定寬鬆的 SSL (為了抓取憑證過期的老舊新聞網)
-            TrustManager[] trustAllCerts = new TrustManager[]{
-                new X509TrustManager() {
-                    public X509Certificate[] getAcceptedIssuers() { return null; }
-                    public void checkClientTrusted(X509Certificate[] certs, String authType) {}
-                    public void checkServerTrusted(X509Certificate[] certs, String authType) {}
+            // [快取 1] 還在 TTL 內：直接讀磁碟，不連網路也不解析 HTML
+            if (cached != null && System.currentTimeMillis() - cached.fetchedAt < cacheTtlMillis) {
+                Page page = readCached(store, cached);
+                if (page != null) {
+                    PipelineMetrics.fetch(url, System.nanoTime() - startNanos, "cache_hit", 0);
+                    return page;
                 }
-            };
-
-            SSLContext sc = SSLContext.getInstance("SSL");
-            sc.init(null, trustAllCerts, new java.security.SecureRandom());
-            HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
-
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36")
-                    .timeout(5000) // 設定 5 秒逾時 (避免卡在惡意網站)
-                    .ignoreContentType(true) // 允許各種格式，但我們在上面過濾了危險副檔名
-                    .sslSocketFactory(sc.getSocketFactory())
-                    .maxBodySize(1024 * 1024 * 2) // [防護 2] 限制最大下載 2MB (新聞通常不會超過 2MB，避免記憶體攻擊)
-                    .get();
-
-            return doc.text();
-            
+                cached = null; // 剛好被淘汰或搬走：當作沒有快取，直接下載
+            }
+
+            // [快取 2] 過期了：帶 ETag / Last-Modified 做條件式 GET
+            Map<String, String> headers = new HashMap<>();
+            if (cached != null) {
+                if (!cached.etag.isEmpty()) headers.put("If-None-Match", cached.etag);
+                if (!cached.lastModified.isEmpty()) headers.put("If-Modified-Since", cached.lastModified);
+            }
+
+            // 共用 client：連線 / TLS session 重用，並套用每個 host 的同時請求數與間隔限制
+            // 回應邊下載邊抽取，文字夠了就不再讀 (record 模式例外：要存下完整 HTML)
+            FetchClient.BodyReader<Page> reader = (body, contentType) -> OutboundTraffic.isRecording()
+                    ? extractAndRecord(url, body, contentType)
+                    : HtmlExtractor.extract(body, contentType, url);
+            FetchClient.Response<Page> response = FetchClient.get(url, OutboundTraffic.route(url), headers, deadline,
+                    reader);
+            long now = System.currentTimeMillis();
+
+            if (response.status == 304 && cached != null) {
+                store.touch(cached, now);
+                Page page = readCached(store, cached);
+                if (page != null) {
+                    PipelineMetrics.fetch(url, System.nanoTime() - startNanos, "not_modified", 0);
+                    return page;
+                }
+                // 304 回來時這筆剛好被淘汰或搬走：不帶條件再下載一次
+                response = FetchClient.get(url, OutboundTraffic.route(url), Map.of(), deadline, reader);
+                now = System.currentTimeMillis();
+            }
+            if (response.status >= 400 || response.body == null) {
+                OutboundTraffic.record(url, response.status, response.contentType, "");
+                PipelineMetrics.fetch(url, System.nanoTime() - startNanos, "http_error", 0);
+                return Page.EMPTY;
+            }
+
+            PipelineMetrics.fetch(url, System.nanoTime() - startNanos, "ok", response.bytesRead);
+            Page page = response.body;
+            if (store != null && !page.text.isEmpty()) {
+                store.put(url, page, response.etag, response.lastModified, now);
+            }
+            return page;
+
         } catch (IOException e) {
             // 遇到連線錯誤是正常的 (對方擋爬蟲或網站掛了)，不用太緊張
             // System.out.println("Fetch error for url: " + url + " -> " + e.getMessage());
-            return "";
+            PipelineMetrics.fetch(url, System.nanoTime() - startNanos, "error", 0);
+            return Page.EMPTY;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Page.EMPTY;
         } catch (Exception e) {
-            return "";
+            PipelineMetrics.fetch(url, System.nanoTime() - startNanos, "error", 0);
+            return Page.EMPTY;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 讀磁碟快取；lookup 之後被 maintain() 淘汰或檔案重寫時 (PageStore 丟 IOException) 回傳 null，
+     * 由呼叫端改從網路抓取，而不是當作抓取失敗
+     */
+    private static Page readCached(PageStore store, PageStore.Entry entry) {
+        try {
+            return store.readPage(entry);
+        } catch (IOException e) {
+            System.out.println("⚠️ Page cache miss after lookup: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // record 模式：整份 HTML 轉成 UTF-8 存進 archive (ReplayServer 會以 UTF-8 回放)
+    private static Page extractAndRecord(String url, InputStream body, String contentType) throws IOException {
+        byte[] raw = body.readAllBytes();
+        Charset charset = HtmlExtractor.detectCharset(Arrays.copyOf(raw, Math.min(raw.length, 1024)), contentType);
+        String html = new String(raw, charset);
+        OutboundTraffic.record(url, 200, "text/html; charset=UTF-8", html);
+        return HtmlExtractor.extract(html, url);
+    }
+}
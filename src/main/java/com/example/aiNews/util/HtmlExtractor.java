@@ -0,0 +1,526 @@
+package com.example.aiNews.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 一次掃過 HTML，同時取出可見文字與 <a href> 連結 (不建 DOM)
+ * - 跳過 script / style / noscript / template / svg，以及 nav / footer / aside 這類版面區塊
+ *   (<header> 不跳過：很多新聞網站把標題、作者、導言放在 <article> 裡的 <header>)
+ * - <head> 裡只保留 <title> 的文字 (與 Jsoup 的 doc.text() 一致)
+ * - 連結轉成絕對網址 (支援 <base href>)，只留 http / https，去掉 #fragment 並去重
+ * - 每個連結記下錨點文字 (<a> 裡的可見文字，同一個連結出現多次時取第一個非空的)
+ * - 文字收集到 maxTextChars 後只再找連結，連結也收滿 maxLinks 就停止讀取 (連線隨之關閉)，
+ *   不會把整份回應讀進記憶體；回應本身的大小另由 FetchClient 限制
+ */
+public class HtmlExtractor {
+
+    public static final int DEFAULT_MAX_TEXT_CHARS = 100_000;
+    public static final int DEFAULT_MAX_LINKS = 100;
+    private static final int MAX_ANCHOR_CHARS = 80;
+
+    // 抽取結果：網頁文字 + 網頁上的連結 (依出現順序) 與各連結的錨點文字
+    public static class Page {
+        public static final Page EMPTY = new Page("", List.of());
+
+        public final String text;
+        public final List<String> links;
+        public final List<String> anchors; // 與 links 同順序，沒有錨點文字時為 "" (舊的快取資料可能整份為空)
+
+        // SimHash 指紋，第一次用到才計算 (CrawlFrontier 去重與 PageFeatures 共用同一份)
+        private long fingerprint;
+        private volatile boolean fingerprinted;
+
+        public Page(String text, List<String> links) {
+            this(text, links, List.of());
+        }
+
+        public Page(String text, List<String> links, List<String> anchors) {
+            this.text = text;
+            this.links = links;
+            this.anchors = anchors;
+        }
+
+        public long fingerprint() {
+            if (!fingerprinted) {
+                fingerprint = SimHash.fingerprint(text);
+                fingerprinted = true;
+            }
+            return fingerprint;
+        }
+    }
+
+    // 整個區塊 (含子元素) 都不算內文
+    private static final Set<String> SKIPPED = Set.of(
+            "script", "style", "noscript", "template", "svg",
+            "nav", "footer", "aside", "select", "button");
+
+    // 這些標籤前後要斷字 (行內標籤如 <b>、<a> 不斷字)
+    private static final Set<String> BLOCKS = Set.of(
+            "p", "div", "br", "hr", "li", "ul", "ol", "dl", "dt", "dd", "tr", "td", "th", "table",
+            "h1", "h2", "h3", "h4", "h5", "h6", "section", "article", "main", "blockquote", "pre",
+            "figure", "figcaption", "title", "body", "head", "html", "form", "label", "option", "img");
+
+    private static final Set<String> VOID_ELEMENTS = Set.of(
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "source", "track", "wbr");
+
+    private static final Map<String, Character> ENTITIES = Map.ofEntries(
+            Map.entry("amp", '&'), Map.entry("lt", '<'), Map.entry("gt", '>'), Map.entry("quot", '"'),
+            Map.entry("apos", '\''), Map.entry("nbsp", ' '), Map.entry("middot", '·'), Map.entry("hellip", '…'),
+            Map.entry("mdash", '—'), Map.entry("ndash", '–'), Map.entry("lsquo", '‘'), Map.entry("rsquo", '’'),
+            Map.entry("ldquo", '“'), Map.entry("rdquo", '”'), Map.entry("copy", '©'), Map.entry("reg", '®'),
+            Map.entry("laquo", '«'), Map.entry("raquo", '»'), Map.entry("bull", '•'));
+
+    private static final Pattern CHARSET = Pattern.compile("(?i)charset\\s*=\\s*[\"']?([A-Za-z0-9._:-]+)");
+    private static final int SNIFF_BYTES = 1024;
+
+    private final Reader in;
+    private final char[] buf = new char[8192];
+    private int pos = 0;
+    private int limit = 0;
+
+    private final int maxTextChars;
+    private final int maxLinks;
+    private final StringBuilder text = new StringBuilder();
+    private final Set<String> links = new LinkedHashSet<>();
+    private final Map<String, String> anchors = new HashMap<>();
+    private URI base;
+
+    // 目前所在的 <a> 的連結，與錨點文字在 text 裡的起點
+    private String anchorLink;
+    private int anchorStart;
+
+    private int skipDepth = 0;
+    private boolean inHead = false;
+    private boolean inTitle = false;
+    private boolean pendingSpace = false;
+
+    private HtmlExtractor(Reader in, String baseUrl, int maxTextChars, int maxLinks) {
+        this.in = in;
+        this.base = toUri(baseUrl);
+        this.maxTextChars = maxTextChars;
+        this.maxLinks = maxLinks;
+    }
+
+    /**
+     * 從 HTTP 回應串流抽取；charset 依序取 Content-Type、BOM / 開頭的 <meta charset>，都沒有就用 UTF-8
+     */
+    public static Page extract(InputStream body, String contentType, String baseUrl) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(body, 8192);
+        buffered.mark(SNIFF_BYTES);
+        byte[] prefix = buffered.readNBytes(SNIFF_BYTES);
+        buffered.reset();
+
+        Charset charset = detectCharset(prefix, contentType);
+        Reader reader = new InputStreamReader(buffered, charset);
+        return new HtmlExtractor(reader, baseUrl, DEFAULT_MAX_TEXT_CHARS, DEFAULT_MAX_LINKS).run();
+    }
+
+    public static Page extract(String html, String baseUrl) {
+        try {
+            return new HtmlExtractor(new StringReader(html), baseUrl, DEFAULT_MAX_TEXT_CHARS, DEFAULT_MAX_LINKS).run();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringReader 不會丟 IOException
+        }
+    }
+
+    public static Charset detectCharset(byte[] prefix, String contentType) {
+        Charset fromHeader = charsetFrom(contentType);
+        if (fromHeader != null) return fromHeader;
+
+        if (prefix.length >= 3 && (prefix[0] & 0xFF) == 0xEF && (prefix[1] & 0xFF) == 0xBB && (prefix[2] & 0xFF) == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        if (prefix.length >= 2 && (prefix[0] & 0xFF) == 0xFE && (prefix[1] & 0xFF) == 0xFF) return StandardCharsets.UTF_16BE;
+        if (prefix.length >= 2 && (prefix[0] & 0xFF) == 0xFF && (prefix[1] & 0xFF) == 0xFE) return StandardCharsets.UTF_16LE;
+
+        // <meta charset="..."> 或 <meta http-equiv content="text/html; charset=...">，都在 ASCII 範圍內
+        Charset fromMeta = charsetFrom(new String(prefix, StandardCharsets.ISO_8859_1));
+        return (fromMeta != null) ? fromMeta : StandardCharsets.UTF_8;
+    }
+
+    private static Charset charsetFrom(String s) {
+        if (s == null) return null;
+        Matcher m = CHARSET.matcher(s);
+        if (!m.find()) return null;
+        try {
+            return Charset.forName(m.group(1));
+        } catch (IllegalArgumentException e) {
+            return null; // 不合法或不支援的 charset 名稱
+        }
+    }
+
+    private Page run() throws IOException {
+        int c;
+        while (!(textFull() && linksFull()) && (c = next()) != -1) {
+            if (c == '<') {
+                readMarkup();
+            } else if (c == '&') {
+                readEntity();
+            } else {
+                appendText((char) c);
+            }
+        }
+        closeAnchor();
+        String result = text.toString().trim();
+        List<String> anchorTexts = new ArrayList<>(links.size());
+        for (String link : links) {
+            anchorTexts.add(anchors.getOrDefault(link, ""));
+        }
+        return new Page(result, new ArrayList<>(links), anchorTexts);
+    }
+
+    // ---------- 文字 ----------
+
+    private boolean collectingText() {
+        return skipDepth == 0 && (!inHead || inTitle) && !textFull();
+    }
+
+    private boolean textFull() {
+        return text.length() >= maxTextChars;
+    }
+
+    private boolean linksFull() {
+        return links.size() >= maxLinks;
+    }
+
+    private void appendText(char c) {
+        if (!collectingText()) return;
+        if (Character.isWhitespace(c) || c == '\u00A0') {
+            pendingSpace = true;
+            return;
+        }
+        if (pendingSpace && text.length() > 0) {
+            text.append(' ');
+        }
+        pendingSpace = false;
+        text.append(c);
+    }
+
+    // '&' 之後：認得的實體換成字元，其他原樣保留
+    private void readEntity() throws IOException {
+        StringBuilder name = new StringBuilder();
+        int c;
+        while (name.length() < 10 && (c = peek()) != -1 && (Character.isLetterOrDigit(c) || c == '#')) {
+            name.append((char) next());
+        }
+        boolean terminated = peek() == ';';
+        char decoded = decodeEntity(name.toString());
+        if (decoded != 0) {
+            if (terminated) next();
+            appendText(decoded);
+            return;
+        }
+        appendText('&');
+        for (int i = 0; i < name.length(); i++) {
+            appendText(name.charAt(i));
+        }
+    }
+
+    private static char decodeEntity(String name) {
+        if (name.startsWith("#")) {
+            try {
+                int code = (name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X'))
+                        ? Integer.parseInt(name.substring(2), 16)
+                        : Integer.parseInt(name.substring(1));
+                return (code > 0 && code < 0xFFFF) ? (char) code : ' ';
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        Character c = ENTITIES.get(name);
+        return (c != null) ? c : 0;
+    }
+
+    // ---------- 標籤 ----------
+
+    private void readMarkup() throws IOException {
+        int c = peek();
+        if (c == '!') {
+            next();
+            skipDeclaration();
+            return;
+        }
+        if (c == '?') {
+            skipUntil(">");
+            return;
+        }
+
+        boolean closing = false;
+        if (c == '/') {
+            next();
+            closing = true;
+        }
+        if (!Character.isLetter(peek())) {
+            // 不是標籤，例如 "a < b"
+            appendText('<');
+            if (closing) appendText('/');
+            return;
+        }
+
+        String name = readName().toLowerCase();
+        String href = null;
+        boolean selfClosing = false;
+
+        // 讀屬性直到 '>'
+        while (true) {
+            skipWhitespace();
+            c = next();
+            if (c == -1 || c == '>') break;
+            if (c == '/') {
+                selfClosing = true;
+                continue;
+            }
+            String attr = ((char) c + readName()).toLowerCase();
+            skipWhitespace();
+            String value = null;
+            if (peek() == '=') {
+                next();
+                skipWhitespace();
+                value = readAttributeValue();
+            }
+            if ("href".equals(attr) && value != null) {
+                href = value;
+            }
+        }
+
+        if (closing) {
+            closeTag(name);
+        } else {
+            openTag(name, href, selfClosing || VOID_ELEMENTS.contains(name));
+        }
+    }
+
+    private void openTag(String name, String href, boolean selfClosing) throws IOException {
+        if (BLOCKS.contains(name)) pendingSpace = true;
+
+        switch (name) {
+            case "head" -> inHead = true;
+            case "body" -> inHead = false;
+            case "title" -> inTitle = true;
+            case "base" -> {
+                URI resolved = (href != null) ? resolve(href) : null;
+                if (resolved != null) base = resolved;
+            }
+            case "a" -> {
+                closeAnchor(); // <a> 不能巢狀，沒關的前一個到這裡為止
+                if (href != null && skipDepth == 0 && !linksFull()) {
+                    anchorLink = addLink(href);
+                    anchorStart = text.length();
+                }
+            }
+            default -> { }
+        }
+
+        if (selfClosing) return;
+        if ("script".equals(name) || "style".equals(name)) {
+            // 內容是原始文字 (可能含 '<')，直接跳到結束標籤
+            skipUntilCloseTag(name);
+            return;
+        }
+        if (SKIPPED.contains(name)) skipDepth++;
+    }
+
+    private void closeTag(String name) {
+        if (BLOCKS.contains(name)) pendingSpace = true;
+        switch (name) {
+            case "head" -> inHead = false;
+            case "title" -> inTitle = false;
+            case "a" -> closeAnchor();
+            default -> { }
+        }
+        if (SKIPPED.contains(name) && skipDepth > 0) skipDepth--;
+    }
+
+    // 回傳加入 (或已經在清單裡) 的連結，不收的連結回傳 null
+    private String addLink(String href) {
+        String h = href.trim();
+        if (h.isEmpty() || h.startsWith("#")) return null;
+        URI resolved = resolve(h);
+        if (resolved == null || resolved.getHost() == null) return null;
+        String scheme = resolved.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) return null;
+
+        String link = resolved.toString();
+        int hash = link.indexOf('#');
+        if (hash >= 0) link = link.substring(0, hash);
+        links.add(link);
+        return link;
+    }
+
+    // </a>：從 <a> 之後收集到的文字就是錨點文字
+    private void closeAnchor() {
+        if (anchorLink == null) return;
+        String anchor = text.substring(Math.min(anchorStart, text.length())).trim();
+        if (anchor.length() > MAX_ANCHOR_CHARS) {
+            anchor = anchor.substring(0, MAX_ANCHOR_CHARS);
+        }
+        if (!anchor.isEmpty()) {
+            anchors.putIfAbsent(anchorLink, anchor);
+        }
+        anchorLink = null;
+    }
+
+    private URI resolve(String href) {
+        try {
+            URI target = new URI(href.replace(" ", "%20"));
+            return (base != null) ? base.resolve(target) : (target.isAbsolute() ? target : null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static URI toUri(String url) {
+        if (url == null) return null;
+        try {
+            return new URI(url);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // <!-- ... -->、<!DOCTYPE ...>、<![CDATA[ ... ]]>
+    private void skipDeclaration() throws IOException {
+        if (peek() == '-') {
+            next();
+            if (peek() == '-') {
+                next();
+                skipUntil("-->");
+                return;
+            }
+        }
+        skipUntil(">");
+    }
+
+    private void skipUntilCloseTag(String name) throws IOException {
+        String end = "</" + name;
+        int matched = 0;
+        int c;
+        while ((c = next()) != -1) {
+            matched = advance(end, matched, Character.toLowerCase((char) c));
+            if (matched == end.length()) {
+                skipUntil(">");
+                return;
+            }
+        }
+    }
+
+    private void skipUntil(String terminator) throws IOException {
+        int matched = 0;
+        int c;
+        while ((c = next()) != -1) {
+            matched = advance(terminator, matched, (char) c);
+            if (matched == terminator.length()) return;
+        }
+    }
+
+    // 已經比對到 pattern 的前 matched 個字元，再讀入 c 之後比對到幾個 (KMP 的狀態轉移)
+    // 不符時退回「最長的前綴兼後綴」再比，例如 "--->" 找 "-->"：第三個 '-' 之後仍是 "--"
+    static int advance(String pattern, int matched, char c) {
+        while (true) {
+            if (c == pattern.charAt(matched)) return matched + 1;
+            if (matched == 0) return 0;
+            matched = border(pattern, matched);
+        }
+    }
+
+    // pattern 前 n 個字元裡，同時是前綴與後綴的最長長度 (不含自己)；樣式很短，直接比對
+    private static int border(String pattern, int n) {
+        for (int k = n - 1; k > 0; k--) {
+            if (pattern.regionMatches(0, pattern, n - k, k)) return k;
+        }
+        return 0;
+    }
+
+    private String readName() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = peek()) != -1 && !Character.isWhitespace(c) && c != '>' && c != '/' && c != '=') {
+            sb.append((char) next());
+            if (sb.length() > 256) break;
+        }
+        return sb.toString();
+    }
+
+    private String readAttributeValue() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int quote = peek();
+        if (quote == '"' || quote == '\'') {
+            next();
+            int c;
+            while ((c = next()) != -1 && c != quote) {
+                if (sb.length() < 4096) sb.append((char) c);
+            }
+        } else {
+            int c;
+            while ((c = peek()) != -1 && !Character.isWhitespace(c) && c != '>') {
+                sb.append((char) next());
+                if (sb.length() >= 4096) break;
+            }
+        }
+        return decodeAttribute(sb.toString());
+    }
+
+    private static String decodeAttribute(String raw) {
+        if (raw.indexOf('&') < 0) return raw;
+        StringBuilder sb = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            int semi = (c == '&') ? raw.indexOf(';', i) : -1;
+            if (semi > i && semi - i <= 10) {
+                char decoded = decodeEntity(raw.substring(i + 1, semi));
+                if (decoded != 0) {
+                    sb.append(decoded);
+                    i = semi;
+                    continue;
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private void skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && Character.isWhitespace(c)) {
+            next();
+        }
+    }
+
+    // ---------- 讀取 ----------
+
+    private int next() throws IOException {
+        if (pos >= limit && !fill()) return -1;
+        return buf[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos >= limit && !fill()) return -1;
+        return buf[pos];
+    }
+
+    private boolean fill() throws IOException {
+        limit = in.read(buf, 0, buf.length);
+        pos = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+}
@@ -37,7 +37,7 @@ public class KeywordExtractor {
             
             System.out.println("🔍 Google Suggest URL: " + urlStr);
             
-            URL url = new URL(urlStr);
+            URL url = new URL(OutboundTraffic.route(urlStr));
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
             conn.setRequestMethod("GET");
             conn.setRequestProperty("User-Agent", "Mozilla/5.0");
@@ -46,6 +46,7 @@ public class KeywordExtractor {
             
             int responseCode = conn.getResponseCode();
             if (responseCode != 200) {
+                OutboundTraffic.record(urlStr, responseCode, "application/json", "");
                 System.out.println("⚠️ Google Suggest API 回應碼: " + responseCode);
                 return suggestions;
             }
@@ -64,6 +65,7 @@ public class KeywordExtractor {
             // 解析 JSON 回應
             // 格式: ["query", ["suggestion1", "suggestion2", ...]]
             String json = response.toString();
+            OutboundTraffic.record(urlStr, responseCode, "application/json", json);
             suggestions = parseJsonArray(json);
             
             System.out.println("✅ Google Suggest 回傳 " + suggestions.size() + " 個建議");
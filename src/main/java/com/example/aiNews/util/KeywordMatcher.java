@@ -0,0 +1,221 @@
+package com.example.aiNews.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick 多關鍵字比對器
+ * 先把整份關鍵字清單編譯成一台自動機，之後每篇文章只要從頭到尾掃一次，
+ * 就能得到每個關鍵字的出現次數，不需要對每個關鍵字各跑一次 indexOf。
+ *
+ * 計數規則與 text.indexOf(keyword, index + keyword.length()) 完全相同：
+ * 同一個關鍵字的出現位置不可重疊 (由左到右貪婪計算)，不同關鍵字之間則各算各的。
+ *
+ * 編譯後的內容不可變，可以在多篇網頁、多個執行緒之間共用。
+ */
+public final class KeywordMatcher {
+
+    private static final int ROOT = 0;
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final String[] patterns;
+    private final int[] lengths;
+
+    // 每個節點的轉移：依字元排序，掃描時用二分搜尋
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    // 走到這個節點時「結尾」在目前位置的所有關鍵字 (已合併 fail 鏈上的輸出)
+    private final int[][] outputs;
+
+    private KeywordMatcher(List<String> patternList) {
+        int n = patternList.size();
+        this.patterns = patternList.toArray(new String[0]);
+        this.lengths = new int[n];
+
+        // 1. 建 trie
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> own = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        own.add(new ArrayList<>());
+
+        for (int id = 0; id < n; id++) {
+            String p = patterns[id];
+            lengths[id] = p.length();
+            if (p.isEmpty()) continue; // 空字串一律算 0 次
+
+            int node = ROOT;
+            for (int i = 0; i < p.length(); i++) {
+                Integer next = trie.get(node).get(p.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(node).put(p.charAt(i), next);
+                    trie.add(new TreeMap<>());
+                    own.add(new ArrayList<>());
+                }
+                node = next;
+            }
+            own.get(node).add(id);
+        }
+
+        int size = trie.size();
+        this.edgeChars = new char[size][];
+        this.edgeTargets = new int[size][];
+        for (int node = 0; node < size; node++) {
+            TreeMap<Character, Integer> edges = trie.get(node);
+            edgeChars[node] = new char[edges.size()];
+            edgeTargets[node] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> e : edges.entrySet()) {
+                edgeChars[node][i] = e.getKey();
+                edgeTargets[node][i] = e.getValue();
+                i++;
+            }
+        }
+
+        // 2. BFS 建 fail link，順便合併輸出
+        this.fail = new int[size];
+        this.outputs = new int[size][];
+        outputs[ROOT] = NO_OUTPUT;
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[ROOT]) {
+            fail[child] = ROOT;
+            outputs[child] = toArray(own.get(child), NO_OUTPUT);
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (int i = 0; i < edgeChars[node].length; i++) {
+                char c = edgeChars[node][i];
+                int child = edgeTargets[node][i];
+
+                int f = fail[node];
+                while (f != ROOT && transition(f, c) < 0) {
+                    f = fail[f];
+                }
+                int target = transition(f, c);
+                fail[child] = (target >= 0) ? target : ROOT;
+
+                outputs[child] = toArray(own.get(child), outputs[fail[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    public static KeywordMatcher compile(List<String> patterns) {
+        return new KeywordMatcher(patterns);
+    }
+
+    public int size() {
+        return patterns.length;
+    }
+
+    public String pattern(int id) {
+        return patterns[id];
+    }
+
+    /**
+     * 掃描一次文字，回傳每個關鍵字 (依編譯時的順序) 的出現次數
+     */
+    public int[] count(String text) {
+        Scan scan = new Scan();
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                scan.feed(text.charAt(i));
+            }
+        }
+        return scan.counts;
+    }
+
+    /**
+     * 結果等同 count(String.join(" ", parts).toLowerCase())，
+     * 但逐字轉小寫，不產生合併後與轉小寫後的整份字串
+     * (唯一的差別：null 視為空字串，舊的字串相加會變成 "null")
+     *
+     * 逐字的 Character.toLowerCase 與 String.toLowerCase 只有少數情況不同：
+     * 'İ' (U+0130) 轉成兩個字元、Σ 在字尾轉成 ς、補充平面字元 (surrogate pair)，
+     * 以及預設語系是土耳其 / 亞塞拜然 / 立陶宛文時的特殊規則；
+     * 遇到這些情況那一段改用 String.toLowerCase，次數與舊的寫法完全相同
+     */
+    public int[] countLowerCase(String... parts) {
+        Scan scan = new Scan();
+        boolean specialLocale = hasSpecialCasing(Locale.getDefault());
+        for (int p = 0; p < parts.length; p++) {
+            if (p > 0) scan.feed(' ');
+            String part = parts[p];
+            if (part == null) continue;
+            if (specialLocale || needsStringLowerCase(part)) {
+                String lower = part.toLowerCase();
+                for (int i = 0; i < lower.length(); i++) {
+                    scan.feed(lower.charAt(i));
+                }
+                continue;
+            }
+            for (int i = 0; i < part.length(); i++) {
+                scan.feed(Character.toLowerCase(part.charAt(i)));
+            }
+        }
+        return scan.counts;
+    }
+
+    // String.toLowerCase 依語系有額外規則的語言 (見 ConditionalSpecialCasing)
+    private static boolean hasSpecialCasing(Locale locale) {
+        String language = locale.getLanguage();
+        return language.equals("tr") || language.equals("az") || language.equals("lt");
+    }
+
+    private static boolean needsStringLowerCase(String part) {
+        for (int i = 0; i < part.length(); i++) {
+            char c = part.charAt(i);
+            if (c == '\u0130' || c == '\u03A3' || Character.isSurrogate(c)) return true;
+        }
+        return false;
+    }
+
+    // 一次掃描的狀態：目前節點、位置與各關鍵字的次數
+    private final class Scan {
+        final int[] counts = new int[patterns.length];
+        // nextAllowed[id]：這個關鍵字下一次出現最早可以從哪個位置開始 (避免重疊)
+        final int[] nextAllowed = new int[patterns.length];
+        int state = ROOT;
+        int position = 0;
+
+        void feed(char c) {
+            int next = transition(state, c);
+            while (next < 0 && state != ROOT) {
+                state = fail[state];
+                next = transition(state, c);
+            }
+            state = (next >= 0) ? next : ROOT;
+
+            int i = position++;
+            for (int id : outputs[state]) {
+                int start = i - lengths[id] + 1;
+                if (start >= nextAllowed[id]) {
+                    counts[id]++;
+                    nextAllowed[id] = i + 1;
+                }
+            }
+        }
+    }
+
+    private int transition(int node, char c) {
+        int i = Arrays.binarySearch(edgeChars[node], c);
+        return (i >= 0) ? edgeTargets[node][i] : -1;
+    }
+
+    private static int[] toArray(List<Integer> own, int[] inherited) {
+        if (own.isEmpty()) return inherited;
+        int[] merged = new int[own.size() + inherited.length];
+        for (int i = 0; i < own.size(); i++) merged[i] = own.get(i);
+        System.arraycopy(inherited, 0, merged, own.size(), inherited.length);
+        return merged;
+    }
+}
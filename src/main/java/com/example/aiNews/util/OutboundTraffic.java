@@ -0,0 +1,105 @@
+package com.example.aiNews.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 對外呼叫 (Google CSE / Translate / Suggest / 網頁抓取) 的錄製與重播
+ * - live   : 直接連線 (預設)
+ * - record : 正常連線，並把每個回應存進本地 archive (JSONL，一行一筆)
+ * - replay : 所有請求改送到本地的 ReplayServer，由它從 archive 回放
+ * archive 的 key 是原始 URL，但會先把 API key 遮掉，避免寫進檔案
+ */
+public class OutboundTraffic {
+
+    public enum Mode { LIVE, RECORD, REPLAY }
+
+    public static class Recording {
+        public String key;
+        public int status;
+        public String contentType;
+        public String body;
+
+        public Recording() {}
+
+        public Recording(String key, int status, String contentType, String body) {
+            this.key = key;
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static volatile Mode mode = Mode.LIVE;
+    private static volatile Path archive;
+    private static volatile String replayBaseUrl;
+
+    public static void configure(Mode newMode, Path archivePath, String replayUrl) {
+        mode = newMode;
+        archive = archivePath;
+        replayBaseUrl = replayUrl;
+    }
+
+    public static Mode mode() {
+        return mode;
+    }
+
+    // replay 模式下把請求導向 ReplayServer，其他模式原樣回傳
+    public static String route(String url) {
+        if (mode != Mode.REPLAY) return url;
+        return replayBaseUrl + "/replay?url=" + URLEncoder.encode(url, StandardCharsets.UTF_8);
+    }
+
+    public static boolean isRecording() {
+        return mode == Mode.RECORD;
+    }
+
+    public static void record(String url, int status, String contentType, String body) {
+        if (mode != Mode.RECORD || body == null) return;
+        Recording recording = new Recording(archiveKey(url), status, contentType, body);
+        try {
+            String line = MAPPER.writeValueAsString(recording);
+            synchronized (OutboundTraffic.class) {
+                Files.createDirectories(archive.toAbsolutePath().getParent());
+                try (BufferedWriter out = Files.newBufferedWriter(archive, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    out.write(line);
+                    out.newLine();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Outbound record error: " + e.getMessage());
+        }
+    }
+
+    // 讀入 archive，同一個 key 以最後一筆為準
+    public static Map<String, Recording> load(Path path) throws IOException {
+        Map<String, Recording> recordings = new LinkedHashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                Recording r = MAPPER.readValue(line, Recording.class);
+                recordings.put(r.key, r);
+            }
+        }
+        return recordings;
+    }
+
+    public static String archiveKey(String url) {
+        if (url == null) return "";
+        return url.replaceAll("([?&]key=)[^&]*", "$1***");
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.aiNews.util;
+
+import com.example.aiNews.util.HtmlExtractor.Page;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 網頁內容的磁碟快取 (以 URL 為 key)
+ *
+ * 檔案格式：單一 append-only 的 pages.dat，每筆 record 為
+ *   [magic:int][fetchedAt:long][recordLength:int][url][etag][lastModified][rawLength:int][deflated payload]
+ * payload (壓縮前) = [textLength:int][text UTF-8][linkCount:int][link (writeUTF)]...
+ *                    [anchorCount:int][anchor (writeUTF)]...
+ * 錨點文字是後來加在 payload 最後的，沒有這一段的舊 record 照常讀取 (錨點文字為空)
+ * 舊版 (PGE1，只有文字沒有連結) 的檔案在啟動時整個捨棄，重新抓取
+ * 同一個 URL 重新下載就再 append 一筆，索引指向最新那筆，舊的那筆標成 DEAD；
+ * 條件式 GET 回 304 時只就地改寫 fetchedAt (固定位置的 8 bytes)。
+ *
+ * 索引 (URL → offset / ETag / Last-Modified / fetchedAt) 放在記憶體，
+ * 啟動時只讀每筆 record 的表頭重建，不需要解壓內文。
+ *
+ * 執行中定期呼叫 maintain()：太久沒重新抓的網頁移出索引、總量超過上限時淘汰最舊的
+ * (record 的 magic 改成 DEAD，重啟時略過，不會再出現)，
+ * 過期的舊版本佔掉一半以上空間就重寫檔案 (重寫時暫停讀寫，讀取時以索引裡最新的位置為準)
+ */
+public class PageStore {
+
+    private static final int MAGIC = 0x50474532; // "PGE2"
+    private static final int LEGACY_MAGIC = 0x50474531; // "PGE1"
+    private static final int DEAD_MAGIC = 0x50474530; // "PGE0"：已淘汰的 record
+    private static final int FETCHED_AT_OFFSET = 4;
+    private static final int HEADER_BYTES = 4 + 8 + 4;
+
+    public static class Entry {
+        public final String url;
+        public final long offset;
+        public final String etag;
+        public final String lastModified;
+        public volatile long fetchedAt;
+        final int recordLength;
+
+        Entry(String url, long offset, long fetchedAt, String etag, String lastModified, int recordLength) {
+            this.url = url;
+            this.offset = offset;
+            this.fetchedAt = fetchedAt;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.recordLength = recordLength;
+        }
+    }
+
+    private final Path file;
+    private FileChannel channel;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private long deadBytes = 0;
+
+    // 重寫檔案 (compact) 時拿 write lock，讀取 record 拿 read lock；put / touch 另外以 synchronized 排隊
+    private final ReentrantReadWriteLock fileLock = new ReentrantReadWriteLock();
+
+    private PageStore(Path file) {
+        this.file = file;
+    }
+
+    public static PageStore open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        PageStore store = new PageStore(dir.resolve("pages.dat"));
+        store.channel = FileChannel.open(store.file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        store.loadIndex();
+        store.compactIfNeeded();
+        return store;
+    }
+
+    public Entry lookup(String url) {
+        return index.get(url);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public Page readPage(Entry entry) throws IOException {
+        fileLock.readLock().lock();
+        try {
+            // lookup 之後檔案可能重寫過 (位置變了) 或這筆已被淘汰：以目前索引為準
+            Entry current = index.get(entry.url);
+            if (current == null) throw new IOException("Evicted from page cache: " + entry.url);
+            return readRecord(current);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    private Page readRecord(Entry entry) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(entry.recordLength - HEADER_BYTES);
+        readFully(buf, entry.offset + HEADER_BYTES);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buf.array()));
+        if (!entry.url.equals(in.readUTF())) {
+            throw new IOException("Page record moved: " + entry.url);
+        }
+        in.readUTF(); // etag
+        in.readUTF(); // lastModified
+        int rawLength = in.readInt();
+        byte[] compressed = in.readAllBytes();
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                n += inflater.inflate(raw, n, rawLength - n);
+            }
+
+            DataInputStream payload = new DataInputStream(new ByteArrayInputStream(raw, 0, n));
+            String text = readLongUTF(payload);
+            int linkCount = payload.readInt();
+            List<String> links = new ArrayList<>(linkCount);
+            for (int i = 0; i < linkCount; i++) {
+                links.add(payload.readUTF());
+            }
+            List<String> anchors = new ArrayList<>(linkCount);
+            if (payload.available() > 0) {
+                int anchorCount = payload.readInt();
+                for (int i = 0; i < anchorCount; i++) {
+                    anchors.add(payload.readUTF());
+                }
+            }
+            return new Page(text, links, anchors);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted page record: " + entry.url, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public synchronized void put(String url, Page page, String etag, String lastModified, long fetchedAt) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(page.text.length() * 2 + 64);
+        DataOutputStream p = new DataOutputStream(payload);
+        writeLongUTF(p, page.text);
+        p.writeInt(page.links.size());
+        for (String link : page.links) {
+            p.writeUTF(link);
+        }
+        p.writeInt(page.anchors.size());
+        for (String anchor : page.anchors) {
+            p.writeUTF(anchor);
+        }
+        p.flush();
+        byte[] raw = payload.toByteArray();
+        byte[] compressed = deflate(raw);
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(compressed.length + 256);
+        DataOutputStream out = new DataOutputStream(body);
+        out.writeUTF(url);
+        out.writeUTF(etag == null ? "" : etag);
+        out.writeUTF(lastModified == null ? "" : lastModified);
+        out.writeInt(raw.length);
+        out.write(compressed);
+        out.flush();
+
+        int recordLength = HEADER_BYTES + body.size();
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        record.putInt(MAGIC).putLong(fetchedAt).putInt(recordLength).put(body.toByteArray()).flip();
+
+        long offset = channel.size();
+        while (record.hasRemaining()) {
+            channel.write(record, offset + record.position());
+        }
+
+        Entry previous = index.put(url, new Entry(url, offset, fetchedAt,
+                etag == null ? "" : etag, lastModified == null ? "" : lastModified, recordLength));
+        if (previous != null) {
+            // 舊版本也標成 DEAD：新的那筆之後被淘汰時，重啟不會把舊版本又放回索引
+            markDead(previous);
+        }
+    }
+
+    // 304 Not Modified：內容沒變，只更新抓取時間
+    public synchronized void touch(Entry entry, long fetchedAt) throws IOException {
+        Entry current = index.get(entry.url); // 檔案重寫過的話位置已經不同
+        if (current == null) return;
+        ByteBuffer buf = ByteBuffer.allocate(8).putLong(fetchedAt).flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf, current.offset + FETCHED_AT_OFFSET + buf.position());
+        }
+        current.fetchedAt = fetchedAt;
+        entry.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * 執行中的整理 (PageCacheConfig 定期呼叫)：
+     * - 超過 maxAgeMillis 沒有重新抓取 (或 304 確認) 的網頁移出索引
+     * - 有效資料超過 maxBytes 時，從最久以前抓的開始淘汰到上限的 80%
+     * - 過期的舊版本超過一半空間時重寫檔案
+     * 回傳移出索引的筆數
+     */
+    public synchronized int maintain(long maxAgeMillis, long maxBytes) throws IOException {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+
+        if (maxAgeMillis > 0) {
+            for (Entry e : new ArrayList<>(index.values())) {
+                if (now - e.fetchedAt > maxAgeMillis && index.remove(e.url, e)) {
+                    markDead(e);
+                    removed++;
+                }
+            }
+        }
+
+        long liveBytes = channel.size() - deadBytes;
+        if (maxBytes > 0 && liveBytes > maxBytes) {
+            List<Entry> oldestFirst = new ArrayList<>(index.values());
+            oldestFirst.sort(Comparator.comparingLong(e -> e.fetchedAt));
+            long target = maxBytes * 8 / 10;
+            for (Entry e : oldestFirst) {
+                if (liveBytes <= target) break;
+                if (index.remove(e.url, e)) {
+                    markDead(e);
+                    liveBytes -= e.recordLength;
+                    removed++;
+                }
+            }
+        }
+
+        compactIfNeeded();
+        return removed;
+    }
+
+    // 淘汰：改寫 record 開頭的 magic (4 bytes)，重啟重建索引時略過
+    private void markDead(Entry entry) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4).putInt(DEAD_MAGIC).flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf, entry.offset + buf.position());
+        }
+        deadBytes += entry.recordLength;
+    }
+
+    public synchronized long fileBytes() throws IOException {
+        return channel.size();
+    }
+
+    public synchronized void close() throws IOException {
+        channel.force(true);
+        channel.close();
+    }
+
+    // 掃描所有 record 表頭重建索引；檔尾若有寫到一半的 record (例如當機) 就截掉
+    private void loadIndex() throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+        while (offset + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, offset);
+            header.flip();
+            int magic = header.getInt();
+            long fetchedAt = header.getLong();
+            int recordLength = header.getInt();
+            if (offset == 0 && magic == LEGACY_MAGIC) {
+                System.out.println("⚠️ PageStore: discarding cache in old format (no links)");
+                break;
+            }
+            if ((magic != MAGIC && magic != DEAD_MAGIC) || recordLength <= HEADER_BYTES
+                    || offset + recordLength > size) break;
+
+            ByteBuffer meta = ByteBuffer.allocate(Math.min(recordLength - HEADER_BYTES, 3 * (2 + 65535)));
+            readFully(meta, offset + HEADER_BYTES);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(meta.array()));
+            String url = in.readUTF();
+
+            // 同一個 URL 前面的版本 (不論這一筆是新的還是已淘汰的) 都不再有效；
+            // 舊檔案裡可能還留著沒標 DEAD 的舊版本，這裡補標，之後重啟也不會再出現
+            Entry previous = index.remove(url);
+            if (previous != null) {
+                markDead(previous);
+            }
+            if (magic == DEAD_MAGIC) {
+                deadBytes += recordLength;
+            } else {
+                String etag = in.readUTF();
+                String lastModified = in.readUTF();
+                index.put(url, new Entry(url, offset, fetchedAt, etag, lastModified, recordLength));
+            }
+            offset += recordLength;
+        }
+
+        if (offset < size) {
+            System.out.println("⚠️ PageStore: truncating " + (size - offset) + " trailing bytes");
+            channel.truncate(offset);
+        }
+    }
+
+    // 過期的舊版本超過一半空間時，重寫一份只含最新 record 的檔案 (呼叫者持有 this 的鎖)
+    private void compactIfNeeded() throws IOException {
+        long size = channel.size();
+        if (size < 16L * 1024 * 1024 || deadBytes * 2 < size) return;
+
+        fileLock.writeLock().lock();
+        try {
+            compact();
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+        System.out.println("🧹 PageStore: compacted " + size / 1024 + " KB → " + channel.size() / 1024 + " KB ("
+                + index.size() + " pages)");
+    }
+
+    private void compact() throws IOException {
+        Path tmp = file.resolveSibling("pages.dat.compact");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            Map<String, Entry> moved = new ConcurrentHashMap<>();
+            for (Entry e : index.values()) {
+                ByteBuffer record = ByteBuffer.allocate(e.recordLength);
+                readFully(record, e.offset);
+                record.flip();
+                while (record.hasRemaining()) {
+                    out.write(record, position + record.position());
+                }
+                moved.put(e.url, new Entry(e.url, position, e.fetchedAt, e.etag, e.lastModified, e.recordLength));
+                position += e.recordLength;
+            }
+            out.force(true);
+            index.putAll(moved); // 每個網址都換成新位置 (不先 clear，查詢不會看到空的索引)
+        }
+
+        channel.close();
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // 不支援原子換名的檔案系統：退回一般的取代 (否則 channel 已關、索引已指向新位置，store 就壞了)
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        deadBytes = 0;
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position + buf.position());
+            if (n < 0) break;
+        }
+    }
+
+    // writeUTF 上限 64KB，內文用 [length:int][UTF-8 bytes]
+    private static void writeLongUTF(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readLongUTF(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 3));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.aiNews.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 搜尋流程各階段的 Micrometer 指標 (由 /actuator/prometheus 匯出)
+ * 註冊在 Metrics.globalRegistry：Spring Boot 啟動後會把 Prometheus registry 掛上去，
+ * 所以 util 裡的 static 類別不用注入 MeterRegistry 也能記錄
+ *
+ * 指標名稱一律以 ainews. 開頭，histogram / 分位數在 application.properties 設定
+ */
+public class PipelineMetrics {
+
+    public static final String PREFIX = "ainews.";
+
+    // Google CSE：outcome = ok / quota / rate_limit / http_error / error
+    public static void googleSearch(long nanos, String outcome) {
+        Timer.builder(PREFIX + "google.search")
+                .description("Google Custom Search API latency")
+                .tag("outcome", outcome)
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // 每日額度用完 (quotaExceeded / dailyLimitExceeded) 另外計數，方便設告警；429 限流算在 google.key.failures
+    public static void googleQuotaError() {
+        Counter.builder(PREFIX + "google.quota.errors")
+                .description("Google Custom Search daily quota exhaustion")
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+
+    // 某組 CSE key 失敗 (之後換下一組 key 重試)：reason = quota / rate_limit / rejected / error
+    public static void googleKeyFailure(String reason) {
+        Counter.builder(PREFIX + "google.key.failures")
+                .description("Google Custom Search requests that failed on one key of the pool")
+                .tag("reason", reason)
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+
+    // 實際送出的翻譯請求 (快取命中不算)
+    public static void translate(long nanos, boolean ok) {
+        Timer.builder(PREFIX + "translate")
+                .description("Translate API latency")
+                .tag("outcome", ok ? "ok" : "error")
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // 網頁抓取：outcome = ok / cache_hit / not_modified / http_error / error
+    public static void fetch(String url, long nanos, String outcome, long bytes) {
+        String host = hostOf(url);
+        Timer.builder(PREFIX + "fetch")
+                .description("Page fetch latency by host")
+                .tag("host", host)
+                .tag("outcome", outcome)
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (bytes > 0) {
+            DistributionSummary.builder(PREFIX + "fetch.bytes")
+                    .description("Downloaded page size by host")
+                    .baseUnit("bytes")
+                    .tag("host", host)
+                    .register(Metrics.globalRegistry)
+                    .record(bytes);
+        }
+    }
+
+    // 關鍵字比對 + 計分的時間 (不含抓取)，純 CPU 區段
+    public static void pageScore(long nanos) {
+        Timer.builder(PREFIX + "page.score")
+                .description("Keyword matching and scoring time per page (excludes fetch)")
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public static void tree(int size, int depth) {
+        DistributionSummary.builder(PREFIX + "tree.size")
+                .description("Pages per crawled tree")
+                .register(Metrics.globalRegistry)
+                .record(size);
+        DistributionSummary.builder(PREFIX + "tree.depth")
+                .description("Depth of crawled tree")
+                .register(Metrics.globalRegistry)
+                .record(depth);
+    }
+
+    // CrawlFrontier 省下的抓取 / 計分：reason = url / known_duplicate / near_duplicate
+    public static void crawlSkipped(String reason) {
+        Counter.builder(PREFIX + "crawl.skipped")
+                .description("Pages skipped by the shared crawl frontier")
+                .tag("reason", reason)
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+
+    // 背景暖機：source = suggestion / trending，outcome = ran / incomplete / cached / busy / budget / error
+    public static void prefetch(String source, String outcome) {
+        Counter.builder(PREFIX + "prefetch")
+                .description("Speculative cache-warming searches")
+                .tag("source", source)
+                .tag("outcome", outcome)
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+
+    // 一次 rankPages 的總時間 (所有結果抓取 + 建樹 + 計分)
+    public static void rank(long nanos, int items) {
+        Timer.builder(PREFIX + "search.rank")
+                .description("rankPages wall time")
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(PREFIX + "search.rank.items")
+                .description("Search items ranked per request")
+                .register(Metrics.globalRegistry)
+                .record(items);
+    }
+
+    // 一次 rankBatch：總時間、關鍵字數，以及因為多個關鍵字搜到同一個網址而省下的抓取
+    public static void batch(long nanos, int keywords, int items, int distinctUrls) {
+        Timer.builder(PREFIX + "search.batch")
+                .description("rankBatch wall time")
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(PREFIX + "search.batch.keywords")
+                .description("Keywords ranked per batch request")
+                .register(Metrics.globalRegistry)
+                .record(keywords);
+        Counter.builder(PREFIX + "search.batch.shared")
+                .description("Search items served from a page already crawled for another keyword in the batch")
+                .register(Metrics.globalRegistry)
+                .increment(items - distinctUrls);
+    }
+
+    /**
+     * ResultCache 的命中 / 未命中 / 淘汰計數與目前大小
+     * 命中率在 Prometheus 端算：
+     *   sum(rate(ainews_cache_requests_total{result=~"hit|stale"}[5m])) / sum(rate(ainews_cache_requests_total[5m]))
+     */
+    public static void registerCache(ResultCache<?, ?> cache, String name) {
+        FunctionCounter.builder(PREFIX + "cache.requests", cache, c -> c.hits())
+                .tag("cache", name).tag("result", "hit")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder(PREFIX + "cache.requests", cache, c -> c.staleHits())
+                .tag("cache", name).tag("result", "stale")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder(PREFIX + "cache.requests", cache, c -> c.misses())
+                .tag("cache", name).tag("result", "miss")
+                .register(Metrics.globalRegistry);
+        FunctionCounter.builder(PREFIX + "cache.evictions", cache, c -> c.evictions())
+                .tag("cache", name)
+                .register(Metrics.globalRegistry);
+        Gauge.builder(PREFIX + "cache.size", cache, c -> c.size())
+                .tag("cache", name)
+                .register(Metrics.globalRegistry);
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            if (host == null) return "unknown";
+            return host.startsWith("www.") ? host.substring(4) : host;
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
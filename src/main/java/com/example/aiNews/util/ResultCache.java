@@ -0,0 +1,239 @@
+package com.example.aiNews.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 多執行緒共用的結果快取
+ * - 數量上限：超過時淘汰最久沒被讀取的項目
+ * - 每個項目各自的 TTL (預設值可在 put 時覆寫)
+ * - stale-while-revalidate：過期但仍在 stale 時間內，先回舊值，同時在背景重新載入
+ * - hit / miss / stale / eviction 計數 (同時以 ainews.cache.* 指標匯出)：
+ *   get 與 getIfPresent 都算 (使用者請求的查詢)，contains 不算 (背景暖機)
+ * - entries() / restore() 給 CacheSnapshot 寫入與載入快照 (重啟後沿用原本的到期時間)
+ */
+public class ResultCache<K, V> {
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+        volatile long lastAccess;
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        Entry(V value, long expiresAt, long now) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastAccess = now;
+        }
+    }
+
+    // 快照裡的一筆：expiresAt / lastAccess 是 System.currentTimeMillis() 時間
+    public static class Stored<K, V> {
+        public final K key;
+        public final V value;
+        public final long expiresAt;
+        public final long lastAccess;
+
+        public Stored(K key, V value, long expiresAt, long lastAccess) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final Predicate<V> cacheable;
+    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResultCache(String name, int maxEntries, Duration ttl, Duration staleWindow, Predicate<V> cacheable) {
+        this.name = name;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = ttl.toMillis();
+        this.staleMillis = staleWindow.toMillis();
+        this.cacheable = cacheable;
+        PipelineMetrics.registerCache(this, name);
+    }
+
+    /**
+     * 取得快取值；沒有 (或已超過 stale 時間) 就用 loader 同步載入
+     */
+    public V get(K key, Function<K, V> loader) {
+        long now = System.currentTimeMillis();
+        Entry<V> entry = map.get(key);
+
+        if (entry != null) {
+            if (now < entry.expiresAt) {
+                entry.lastAccess = now;
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            if (now < entry.expiresAt + staleMillis) {
+                entry.lastAccess = now;
+                staleHits.incrementAndGet();
+                refreshInBackground(key, entry, loader);
+                return entry.value;
+            }
+            map.remove(key, entry);
+        }
+
+        misses.incrementAndGet();
+        V value = loader.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * 只查不載入：還在 TTL 內就回傳，否則回傳 null (超過 TTL 的不回舊值、也不背景重新載入)
+     * 呼叫端查不到時會自己載入再 put (串流搜尋、批次搜尋、批次翻譯)，所以跟 get 一樣算進 hit / miss
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = map.get(key);
+        long now = System.currentTimeMillis();
+        if (entry == null || now >= entry.expiresAt) {
+            misses.incrementAndGet();
+            return null;
+        }
+        entry.lastAccess = now;
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    // 有沒有還在 TTL 內的值 (hit / miss 都不算，給背景暖機判斷要不要載入；命中率只反映使用者的請求)
+    public boolean contains(K key) {
+        Entry<V> entry = map.get(key);
+        return entry != null && System.currentTimeMillis() < entry.expiresAt;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, Duration.ofMillis(ttlMillis));
+    }
+
+    public void put(K key, V value, Duration ttl) {
+        if (value == null || (cacheable != null && !cacheable.test(value))) return;
+        long now = System.currentTimeMillis();
+        map.put(key, new Entry<>(value, now + ttl.toMillis(), now));
+        evictIfNeeded();
+    }
+
+    // 還沒超過 stale 時間的項目，最近讀取的在前
+    public List<Stored<K, V>> entries() {
+        long now = System.currentTimeMillis();
+        List<Stored<K, V>> entries = new ArrayList<>();
+        for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+            Entry<V> entry = e.getValue();
+            if (now >= entry.expiresAt + staleMillis) continue;
+            entries.add(new Stored<>(e.getKey(), entry.value, entry.expiresAt, entry.lastAccess));
+        }
+        entries.sort(Comparator.comparingLong((Stored<K, V> e) -> e.lastAccess).reversed());
+        return entries;
+    }
+
+    /**
+     * 放回快照裡的項目，保留原本的到期時間 (TTL 設定改短時以新的 TTL 為上限)
+     * 已超過 stale 時間的略過；快取裡已經有比較新的值 (啟動後剛查過) 也不覆蓋
+     * 回傳有沒有放進去
+     */
+    public boolean restore(K key, V value, long expiresAt, long lastAccess) {
+        if (value == null || (cacheable != null && !cacheable.test(value))) return false;
+        long now = System.currentTimeMillis();
+        long expires = Math.min(expiresAt, now + ttlMillis);
+        if (now >= expires + staleMillis) return false;
+
+        Entry<V> restored = new Entry<>(value, expires, Math.min(lastAccess, now));
+        boolean[] stored = {false};
+        map.compute(key, (k, current) -> {
+            if (current != null && current.expiresAt >= expires) return current;
+            stored[0] = true;
+            return restored;
+        });
+        if (stored[0]) evictIfNeeded();
+        return stored[0];
+    }
+
+    public void invalidate(K key) {
+        map.remove(key);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long hits() { return hits.get(); }
+    public long staleHits() { return staleHits.get(); }
+    public long misses() { return misses.get(); }
+    public long evictions() { return evictions.get(); }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("size", map.size());
+        stats.put("max_entries", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("stale_hits", staleHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        long total = hits.get() + staleHits.get() + misses.get();
+        stats.put("hit_ratio", total == 0 ? 0.0 : (double) (hits.get() + staleHits.get()) / total);
+        return stats;
+    }
+
+    private void refreshInBackground(K key, Entry<V> entry, Function<K, V> loader) {
+        if (!entry.refreshing.compareAndSet(false, true)) return;
+        Thread.ofVirtual().name("cache-refresh-" + name).start(() -> {
+            try {
+                put(key, loader.apply(key));
+            } catch (Exception e) {
+                System.out.println("Cache refresh error (" + name + "): " + e.getMessage());
+            } finally {
+                entry.refreshing.set(false);
+            }
+        });
+    }
+
+    // 先清掉已超過 stale 時間的項目，還是太多就淘汰最久沒讀取的
+    private void evictIfNeeded() {
+        if (map.size() <= maxEntries) return;
+
+        long now = System.currentTimeMillis();
+        map.entrySet().removeIf(e -> {
+            boolean dead = now >= e.getValue().expiresAt + staleMillis;
+            if (dead) evictions.incrementAndGet();
+            return dead;
+        });
+
+        while (map.size() > maxEntries) {
+            K oldestKey = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+                if (e.getValue().lastAccess < oldestAccess) {
+                    oldestAccess = e.getValue().lastAccess;
+                    oldestKey = e.getKey();
+                }
+            }
+            if (oldestKey == null) break;
+            if (map.remove(oldestKey) != null) evictions.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.aiNews.util;
+
+import java.util.List;
+
+/**
+ * 64-bit SimHash 內容指紋 (近似重複偵測)
+ * 以連續 3 個詞 (TextTokenizer 斷詞) 為一組 shingle，每組雜湊後對 64 個 bit 投票；
+ * 內容幾乎相同的網頁 (轉載、只差版面或幾句話) 指紋只差幾個 bit，用漢明距離判斷
+ */
+public class SimHash {
+
+    private static final int SHINGLE_SIZE = 3;
+
+    // 詞數太少 (錯誤頁、擋爬蟲頁) 的指紋不可靠，不做比對
+    public static final int MIN_TOKENS = 50;
+
+    // 漢明距離 <= 3 視為同一篇
+    public static final int NEAR_DUPLICATE_BITS = 3;
+
+    // 詞數不足 MIN_TOKENS 時回傳 0 (代表沒有指紋)
+    public static long fingerprint(String text) {
+        List<String> tokens = TextTokenizer.tokenize(text);
+        if (tokens.size() < MIN_TOKENS) return 0L;
+
+        int[] votes = new int[64];
+        for (int i = 0; i + SHINGLE_SIZE <= tokens.size(); i++) {
+            long hash = shingleHash(tokens, i);
+            for (int bit = 0; bit < 64; bit++) {
+                votes[bit] += ((hash >>> bit) & 1L) != 0 ? 1 : -1;
+            }
+        }
+
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) fingerprint |= 1L << bit;
+        }
+        // 極少數情況投票結果剛好全為 0，改成 1 以免被當成「沒有指紋」
+        return (fingerprint != 0L) ? fingerprint : 1L;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    public static boolean isNearDuplicate(long a, long b) {
+        return a != 0L && b != 0L && distance(a, b) <= NEAR_DUPLICATE_BITS;
+    }
+
+    // FNV-1a 串接 shingle 內的詞，最後再打散一次讓每個 bit 分佈平均
+    private static long shingleHash(List<String> tokens, int from) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < from + SHINGLE_SIZE; i++) {
+            String token = tokens.get(i);
+            for (int j = 0; j < token.length(); j++) {
+                hash ^= token.charAt(j);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= ' ';
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
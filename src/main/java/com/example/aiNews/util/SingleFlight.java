@@ -0,0 +1,133 @@
+package com.example.aiNews.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 同一個 key 同時 (或間隔很短) 的多次呼叫只真正執行一次
+ * 第一個呼叫者負責執行 loader，其他人掛在同一個 future 上等結果；
+ * 完成後結果再保留 linger 時間，讓緊接著進來的請求也能直接共用。
+ * 失敗的結果不保留，下一次呼叫會重新執行。
+ *
+ * 有 deadline 的呼叫：
+ * - 等別人的執行只等到自己的 deadline，逾時就自己執行 loader (loader 依同一個 deadline 很快結束)
+ * - complete 為 false 的結果 (例如 deadline 到了的 partial 結果) 只給 deadline 不比第一個呼叫者晚的人；
+ *   deadline 較長的呼叫者改成自己執行，並取代原本的結果讓後面的人共用
+ */
+public class SingleFlight<K, V> {
+
+    private static class Call<V> {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final Deadline deadline;
+        volatile long completedAt = 0;
+
+        Call(Deadline deadline) {
+            this.deadline = deadline;
+        }
+    }
+
+    private static final int CLEANUP_THRESHOLD = 1000;
+
+    private final ConcurrentHashMap<K, Call<V>> calls = new ConcurrentHashMap<>();
+    private final long lingerMillis;
+
+    public SingleFlight(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+    }
+
+    public V execute(K key, Function<K, V> loader) {
+        return execute(key, Deadline.none(), loader, value -> true);
+    }
+
+    public V execute(K key, Deadline deadline, Function<K, V> loader, Predicate<V> complete) {
+        while (true) {
+            Call<V> existing = calls.get(key);
+            if (existing != null) {
+                if (isExpired(existing)) {
+                    calls.remove(key, existing);
+                    continue;
+                }
+
+                V value;
+                try {
+                    value = await(existing.future, deadline);
+                } catch (TimeoutException e) {
+                    // 自己的 deadline 到了：不再等，自己跑一次 (不登記，結果只給自己)
+                    return loader.apply(key);
+                } catch (InterruptedException e) {
+                    // 請求被中斷 (例如 client 斷線)：保留中斷狀態交給 loader，loader 會馬上放棄
+                    Thread.currentThread().interrupt();
+                    return loader.apply(key);
+                }
+                if (complete.test(value) || !deadline.endsAfter(existing.deadline)) {
+                    return value;
+                }
+
+                // 別人在較短的 deadline 下跑出的不完整結果：自己重跑，之後的人改成共用這一次
+                Call<V> call = new Call<>(deadline);
+                if (calls.replace(key, existing, call)) {
+                    return lead(key, call, loader);
+                }
+                continue;
+            }
+
+            Call<V> call = new Call<>(deadline);
+            if (calls.putIfAbsent(key, call) != null) {
+                continue; // 別的執行緒搶先了，改成等它
+            }
+            return lead(key, call, loader);
+        }
+    }
+
+    public int inFlight() {
+        int n = 0;
+        for (Call<V> call : calls.values()) {
+            if (!call.future.isDone()) n++;
+        }
+        return n;
+    }
+
+    private V lead(K key, Call<V> call, Function<K, V> loader) {
+        try {
+            V value = loader.apply(key);
+            call.completedAt = System.currentTimeMillis();
+            call.future.complete(value);
+            if (lingerMillis <= 0) calls.remove(key, call);
+            return value;
+        } catch (RuntimeException | Error e) {
+            calls.remove(key, call);
+            call.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            cleanupIfNeeded();
+        }
+    }
+
+    private boolean isExpired(Call<V> call) {
+        long completedAt = call.completedAt;
+        return completedAt != 0 && System.currentTimeMillis() - completedAt >= lingerMillis;
+    }
+
+    private void cleanupIfNeeded() {
+        if (calls.size() < CLEANUP_THRESHOLD) return;
+        calls.values().removeIf(this::isExpired);
+    }
+
+    private static <V> V await(CompletableFuture<V> future, Deadline deadline)
+            throws TimeoutException, InterruptedException {
+        try {
+            return deadline.isUnlimited()
+                    ? future.get()
+                    : future.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
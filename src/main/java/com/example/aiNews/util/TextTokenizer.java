@@ -0,0 +1,58 @@
+package com.example.aiNews.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 中英文混合的斷詞
+ * - 英文 / 數字：連續的字母數字為一個詞，轉小寫
+ * - 中日韓文字：沒有空白分詞，用相鄰兩字 (bigram) 當作詞；單獨一個字就用單字
+ * 查詢與建索引用同一套規則，「人工智慧」會變成 人工 / 工智 / 智慧，查「智慧」也找得到
+ */
+public class TextTokenizer {
+
+    private static final int MAX_TOKEN_LENGTH = 40;
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) return tokens;
+
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+
+            if (isCjk(c)) {
+                int start = i;
+                while (i < n && isCjk(text.charAt(i))) i++;
+                if (i - start == 1) {
+                    tokens.add(String.valueOf(c));
+                } else {
+                    for (int j = start; j + 1 < i; j++) {
+                        tokens.add(text.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < n && Character.isLetterOrDigit(text.charAt(i)) && !isCjk(text.charAt(i))) i++;
+                if (i - start <= MAX_TOKEN_LENGTH) {
+                    tokens.add(text.substring(start, i).toLowerCase());
+                }
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    public static boolean isCjk(char c) {
+        if (c < '\u3040') return false; // 英文、標點等常見字元直接略過查表
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES;
+    }
+}
@@ -1,15 +1,148 @@
 package com.example.aiNews.util;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Google 翻譯 (GTX 免費接口)
+ * - 翻譯結果以 (來源語言, 目標語言, 原文) 為 key 快取，有數量上限與 TTL
+ * - 同一段文字同時被翻譯時只送出一次請求
+ * - 共用一個 HttpClient (keep-alive 連線重用)，並設定連線 / 讀取逾時
+ * - translateAll 可以把多段文字合併成一次請求
+ */
 public class Translator {
 
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+    private static final int REQUEST_TIMEOUT_MS = 5000;
+    // GET 網址長度有限，合併翻譯時每批原文最多這麼長
+    private static final int MAX_BATCH_CHARS = 1500;
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT_MS))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // 翻譯失敗 (null) 不會進快取
+    private static final ResultCache<String, String> CACHE =
+            new ResultCache<>("translations", 2000, Duration.ofHours(24), Duration.ZERO, null);
+
+    // 重啟後沿用翻譯結果 (快照在第一次用到 Translator 時放回)
+    static {
+        CacheSnapshot.register(CACHE, CacheSnapshot.STRING);
+    }
+    private static final SingleFlight<String, String> IN_FLIGHT = new SingleFlight<>(0);
+
     public static String translate(String langFrom, String langTo, String text) {
+        if (text == null || text.isBlank()) return text;
+
+        String translated = CACHE.get(cacheKey(langFrom, langTo, text),
+                key -> IN_FLIGHT.execute(key, k -> request(langFrom, langTo, text)));
+        return (translated != null) ? translated : text; // 失敗回傳原文
+    }
+
+    /**
+     * 一次翻譯多段文字：快取裡沒有的原文合併成一個請求送出
+     * 回傳順序與輸入相同，個別失敗時回傳原文
+     * 請求失敗 (逾時、HTTP 錯誤) 時剩下的批次也不送了，全部回傳原文，不會在翻譯服務掛掉時連續等好幾次逾時
+     */
+    public static List<String> translateAll(String langFrom, String langTo, List<String> texts) {
+        Map<String, String> known = new HashMap<>();
+        LinkedHashSet<String> missing = new LinkedHashSet<>();
+
+        for (String text : texts) {
+            if (text == null || text.isBlank() || known.containsKey(text)) continue;
+            String cached = CACHE.getIfPresent(cacheKey(langFrom, langTo, text));
+            if (cached != null) {
+                known.put(text, cached);
+            } else {
+                missing.add(text);
+            }
+        }
+
+        // 依長度分批，每批一次請求；段落之間用換行分隔，回來再依換行切開
+        List<String> batch = new ArrayList<>();
+        int batchChars = 0;
+        boolean reachable = true;
+        for (String text : missing) {
+            if (!batch.isEmpty() && batchChars + text.length() > MAX_BATCH_CHARS) {
+                reachable = translateBatch(langFrom, langTo, batch, known);
+                if (!reachable) break;
+                batch = new ArrayList<>();
+                batchChars = 0;
+            }
+            batch.add(text);
+            batchChars += text.length() + 1;
+        }
+        if (reachable && !batch.isEmpty()) {
+            translateBatch(langFrom, langTo, batch, known);
+        }
+
+        List<String> results = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            results.add(known.getOrDefault(text, text));
+        }
+        return results;
+    }
+
+    // 回傳 false 代表請求本身失敗 (沒有回應)，這一批都維持原文
+    private static boolean translateBatch(String langFrom, String langTo, List<String> batch, Map<String, String> known) {
+        // 換行本身會被翻譯器保留，所以原文裡的換行先換成空白
+        List<String> lines = new ArrayList<>();
+        for (String text : batch) {
+            lines.add(text.replace('\n', ' ').replace('\r', ' '));
+        }
+
+        String joined = request(langFrom, langTo, String.join("\n", lines));
+        if (joined == null) {
+            // 沒有回應：逐一重試只會再多等 N 次逾時，直接回傳原文 (不放進快取，下次再試)
+            return false;
+        }
+
+        String[] parts = joined.split("\n", -1);
+        if (parts.length == batch.size()) {
+            for (int i = 0; i < batch.size(); i++) {
+                String translated = parts[i].trim();
+                CACHE.put(cacheKey(langFrom, langTo, batch.get(i)), translated);
+                known.put(batch.get(i), translated);
+            }
+            return true;
+        }
+
+        // 有回應但分段對不起來 (翻譯器合併或拆開了句子)，退回逐一翻譯
+        for (String text : batch) {
+            known.put(text, translate(langFrom, langTo, text));
+        }
+        return true;
+    }
+
+    // 實際送出請求，失敗回傳 null
+    private static String request(String langFrom, String langTo, String text) {
+        long startNanos = System.nanoTime();
+        String result = null;
+        try {
+            result = send(langFrom, langTo, text);
+            return result;
+        } finally {
+            PipelineMetrics.translate(System.nanoTime() - startNanos, result != null);
+        }
+    }
+
+    private static String send(String langFrom, String langTo, String text) {
         try {
             // 使用 Google Translate 的免費公開接口 (GTX)
             String urlStr = "https://translate.googleapis.com/translate_a/single?" +
@@ -19,33 +152,45 @@ public class Translator {
                     "dt=t&" +
                     "q=" + URLEncoder.encode(text, StandardCharsets.UTF_8);
 
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestProperty("User-Agent", "Mozilla/5.0");
+            HttpRequest request = HttpRequest.newBuilder(URI.create(OutboundTraffic.route(urlStr)))
+                    .timeout(Duration.ofMillis(REQUEST_TIMEOUT_MS))
+                    .header("User-Agent", "Mozilla/5.0")
+                    .GET()
+                    .build();
 
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            String inputLine;
-            StringBuilder response = new StringBuilder();
-
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
+            HttpResponse<String> response = CLIENT.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            OutboundTraffic.record(urlStr, response.statusCode(), "application/json", response.body());
+            if (response.statusCode() != 200) {
+                System.out.println("Translation Error: HTTP " + response.statusCode());
+                return null;
             }
-            in.close();
-
-            // 解析 JSON 回傳: [[["TranslatedText","Original",...]]]
-            String json = response.toString();
-            int start = json.indexOf("\"");
-            int end = json.indexOf("\"", start + 1);
-            
-            if (start != -1 && end != -1) {
-                return json.substring(start + 1, end);
+
+            // 解析 JSON 回傳: [[["TranslatedText","Original",...], ["下一句翻譯","下一句原文",...]], ...]
+            JsonNode segments = MAPPER.readTree(response.body()).path(0);
+            StringBuilder translated = new StringBuilder();
+            for (JsonNode segment : segments) {
+                JsonNode part = segment.path(0);
+                if (part.isTextual()) {
+                    translated.append(part.asText());
+                }
             }
-            
-            return text; // 失敗回傳原文
 
+            return translated.length() > 0 ? translated.toString() : null;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
             System.out.println("Translation Error: " + e.getMessage());
-            return text;
+            return null;
         }
     }
-}
\ No newline at end of file
+
+    private static String cacheKey(String langFrom, String langTo, String text) {
+        return langFrom + "|" + langTo + "|" + text;
+    }
+
+    public static Map<String, Object> cacheStats() {
+        return CACHE.stats();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.aiNews.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * HtmlExtractor 跳過註解與 script / style 時，結束標記前面多出重複的字元也要正確找到結尾
+ */
+class HtmlExtractorTest {
+
+    private static HtmlExtractor.Page extract(String html) {
+        return HtmlExtractor.extract(html, "https://example.com/");
+    }
+
+    @Test
+    void commentEndingWithExtraDashes() {
+        assertEquals("visible", extract("<!-- a --->visible").text);
+        assertEquals("before after", extract("before <!-- x ----> after").text);
+        assertEquals("a b", extract("a <!---->b").text);
+    }
+
+    @Test
+    void textAndLinksAfterCommentAreKept() {
+        HtmlExtractor.Page page = extract("<body><!-- a ---><p>news</p><a href=\"/story\">Story</a>"
+                + "<!-- b --> tail</body>");
+        assertEquals("news Story tail", page.text);
+        assertEquals(List.of("https://example.com/story"), page.links);
+        assertEquals(List.of("Story"), page.anchors);
+    }
+
+    @Test
+    void scriptAndStyleEndTags() {
+        assertEquals("x y", extract("x <script>if (a <</script> y").text);
+        assertEquals("x y", extract("x <style>a{} <</STYLE> y").text);
+        assertEquals("x y", extract("x <script>\"</scr\" + \"ipt\"</script> y").text);
+    }
+
+    @Test
+    void advanceFollowsFailureFunction() {
+        // "-->" 讀入 "--" 後再讀 '-'，仍然比對到兩個字元
+        assertEquals(2, HtmlExtractor.advance("-->", 2, '-'));
+        assertEquals(3, HtmlExtractor.advance("-->", 2, '>'));
+        assertEquals(1, HtmlExtractor.advance("</script", 3, '<'));
+        assertEquals(0, HtmlExtractor.advance(">", 0, 'a'));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.aiNews.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * KeywordMatcher 的次數要與原本 WebPage 的 indexOf 迴圈完全相同：
+ * 同一個關鍵字不重疊、由左到右貪婪計算，不同關鍵字各算各的
+ */
+class KeywordMatcherTest {
+
+    // 原本 WebPage.countKeyword 的寫法
+    private static int indexOfCount(String text, String keyword) {
+        if (keyword.isEmpty()) return 0;
+        int count = 0;
+        int index = text.indexOf(keyword);
+        while (index != -1) {
+            count++;
+            index = text.indexOf(keyword, index + keyword.length());
+        }
+        return count;
+    }
+
+    private static int[] expected(List<String> patterns, String text) {
+        int[] counts = new int[patterns.size()];
+        for (int i = 0; i < patterns.size(); i++) {
+            counts[i] = indexOfCount(text, patterns.get(i));
+        }
+        return counts;
+    }
+
+    private static void assertSameCounts(List<String> patterns, String text) {
+        assertArrayEquals(expected(patterns, text), KeywordMatcher.compile(patterns).count(text), text);
+    }
+
+    // countLowerCase(parts) 要等於舊的 (a + " " + b + ...).toLowerCase() 之後再數
+    private static void assertSameLowerCaseCounts(List<String> patterns, String... parts) {
+        String joined = String.join(" ", parts).toLowerCase();
+        assertArrayEquals(expected(patterns, joined), KeywordMatcher.compile(patterns).countLowerCase(parts), joined);
+    }
+
+    @Test
+    void overlappingOccurrencesOfOneKeywordAreNotCounted() {
+        assertSameCounts(List.of("aa"), "aaaa");
+        assertSameCounts(List.of("aa"), "aaa");
+        assertSameCounts(List.of("aba"), "ababababa");
+        assertEquals(2, KeywordMatcher.compile(List.of("aa")).count("aaaa")[0]);
+    }
+
+    @Test
+    void nestedDictionaryTermsAreCountedIndependently() {
+        List<String> patterns = List.of("ai", "openai", "open ai", "a", "generative ai", "generative", "i");
+        assertSameCounts(patterns, "openai and open ai ship generative ai; ai ai openaiopenai");
+        assertSameCounts(List.of("he", "she", "his", "hers"), "ushers shehishers");
+    }
+
+    @Test
+    void mixedCaseMatchesLowerCasedJoin() {
+        List<String> patterns = List.of("openai", "chatgpt", "large language model", "ai");
+        assertSameLowerCaseCounts(patterns, "OpenAI releases ChatGPT", "A Large Language Model", "AI, Ai, aI");
+        assertSameLowerCaseCounts(patterns, "", "OPENAI", "");
+    }
+
+    @Test
+    void cjkTerms() {
+        List<String> patterns = List.of("人工智慧", "智慧", "人工", "生成式人工智慧", "ai");
+        assertSameCounts(patterns, "生成式人工智慧是人工智慧的一種，智慧智慧人工智慧");
+        assertSameLowerCaseCounts(patterns, "生成式AI與人工智慧", "AI 人工智慧");
+    }
+
+    @Test
+    void specialCasingMatchesStringToLowerCase() {
+        // 'İ' 轉小寫變兩個字元、字尾的 Σ 變 ς：要與 String.toLowerCase 一致
+        List<String> patterns = List.of("i̇", "istanbul", "ς", "σ", "οσ", "i");
+        assertSameLowerCaseCounts(patterns, "İSTANBUL İstanbul", "ΟΔΟΣ ΟΔΟΣ", "ΣΟΦΙΑ");
+        assertSameLowerCaseCounts(List.of("𐐨"), "𐐀 deseret"); // 補充平面字元
+    }
+
+    @Test
+    void specialLocaleMatchesStringToLowerCase() {
+        Locale original = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr"));
+            assertSameLowerCaseCounts(List.of("ı", "i", "istanbul"), "ISTANBUL Istanbul İstanbul");
+        } finally {
+            Locale.setDefault(original);
+        }
+    }
+
+    @Test
+    void randomTextsOverSmallAlphabet() {
+        Random random = new Random(42);
+        String alphabet = "abAB 智慧";
+        for (int round = 0; round < 500; round++) {
+            List<String> patterns = new ArrayList<>();
+            for (int p = 0; p < 1 + random.nextInt(6); p++) {
+                patterns.add(randomString(random, "ab 智慧", 1 + random.nextInt(4)));
+            }
+            String a = randomString(random, alphabet, random.nextInt(40));
+            String b = randomString(random, alphabet, random.nextInt(40));
+            assertSameCounts(patterns, a);
+            assertSameLowerCaseCounts(patterns, a, b);
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}